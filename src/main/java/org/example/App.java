@@ -2,42 +2,118 @@ package org.example;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 abstract class Contact implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    // ids survive save/load and are unique within a book; used for sharding. New ids are
+    // above every id loaded so far, but books written by other processes may share ids.
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+
+    // notified after every touch(), e.g. to keep TimeIndex ordered by last edit
+    interface TouchListener {
+        void touched(Contact c, LocalDateTime previousEdit);
+    }
+
+    private static final List<TouchListener> TOUCH_LISTENERS = new CopyOnWriteArrayList<>();
+
+    private long id;
     protected String number = "";
     protected final LocalDateTime timeCreated;
     protected LocalDateTime timeLastEdit;
 
     protected Contact(String number) {
+        this.id = ID_SEQUENCE.incrementAndGet();
         this.timeCreated = LocalDateTime.now();
         this.timeLastEdit = this.timeCreated;
         setNumber(number);
     }
 
+    // rebuilds a contact as it was stored, without validation or touching it
+    protected Contact(long id, String number, LocalDateTime timeCreated, LocalDateTime timeLastEdit) {
+        this.id = id;
+        if (id > 0) {
+            ID_SEQUENCE.accumulateAndGet(id, Math::max);
+        }
+        this.number = (number == null) ? "" : number;
+        this.timeCreated = timeCreated;
+        this.timeLastEdit = timeLastEdit;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (id == 0) {
+            // file written before ids existed
+            id = ID_SEQUENCE.incrementAndGet();
+        } else {
+            ID_SEQUENCE.accumulateAndGet(id, Math::max);
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    // a fresh id for contacts built with the restore constructors, e.g. generated ones
+    static long nextId() {
+        return ID_SEQUENCE.incrementAndGet();
+    }
+
     protected void touch() {
+        LocalDateTime previous = timeLastEdit;
         timeLastEdit = LocalDateTime.now();
+        fireTouched(this, previous);
+    }
+
+    // true if other is this record, e.g. another view of the same columnar row;
+    // an equal id alone is not enough once several books are loaded
+    boolean isSameRecord(Contact other) {
+        return this == other;
+    }
+
+    static void addTouchListener(TouchListener listener) {
+        TOUCH_LISTENERS.add(listener);
+    }
+
+    static void removeTouchListener(TouchListener listener) {
+        TOUCH_LISTENERS.remove(listener);
+    }
+
+    static void fireTouched(Contact c, LocalDateTime previousEdit) {
+        for (TouchListener listener : TOUCH_LISTENERS) {
+            listener.touched(c, previousEdit);
+        }
     }
 
     public void setNumber(String number) {
+        this.number = checkedNumber(number);
+        touch();
+    }
+
+    static String checkedNumber(String number) {
         if (number == null || number.isEmpty()) {
-            this.number = "";
-            touch();
-            return;
+            return "";
         }
         if (isValidNumber(number)) {
-            this.number = number;
-        } else {
-            System.out.println("Wrong number format!");
-            this.number = "";
+            return number;
         }
-        touch();
+        System.out.println("Wrong number format!");
+        return "";
+    }
+
+    String getNumber() {
+        return number;
     }
 
     public String getNumberPrintable() {
@@ -52,6 +128,33 @@ abstract class Contact implements Serializable {
         return timeLastEdit;
     }
 
+    // birth date as an epoch day; PersonContact.NO_BIRTH_DAY when unknown or not a person
+    int getBirthDay() {
+        return PersonContact.NO_BIRTH_DAY;
+    }
+
+    // raw field values plus "type"; restore() turns them back into a contact
+    Map<String, String> toFields() {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("type", getType());
+        for (String field : getEditableFields()) {
+            fields.put(field, "number".equals(field) ? getNumber() : getFieldValue(field));
+        }
+        return fields;
+    }
+
+    static Contact restore(long id, Map<String, String> fields, LocalDateTime timeCreated, LocalDateTime timeLastEdit) {
+        if ("organization".equals(fields.get("type"))) {
+            return new OrganizationContact(id, fields.get("name"), fields.get("address"), fields.get("number"),
+                    timeCreated, timeLastEdit);
+        }
+        return new PersonContact(id, fields.get("name"), fields.get("surname"), fields.get("birth"),
+                fields.get("gender"), fields.get("number"), timeCreated, timeLastEdit);
+    }
+
+    // "person" or "organization"
+    abstract String getType();
+
     // ----- Polymorphism methods (Main uses only these) -----
     public abstract String getListName();                  // for list/search results
     public abstract void printInfo();                      // record details
@@ -77,7 +180,9 @@ class PersonContact extends Contact {
 
     private String name;
     private String surname;
-    private String birthDate = "[no data]";
+    static final int NO_BIRTH_DAY = Integer.MIN_VALUE;
+
+    private int birthDay = NO_BIRTH_DAY; // LocalDate epoch day
     private String gender = "[no data]";
 
     public PersonContact(String name, String surname, String birthDate, String gender, String number) {
@@ -88,6 +193,33 @@ class PersonContact extends Contact {
         setGender(gender);
     }
 
+    PersonContact(long id, String name, String surname, String birthDate, String gender, String number,
+                  LocalDateTime timeCreated, LocalDateTime timeLastEdit) {
+        this(id, name, surname, toBirthDay(birthDate), gender, number, timeCreated, timeLastEdit);
+    }
+
+    PersonContact(long id, String name, String surname, int birthDay, String gender, String number,
+                  LocalDateTime timeCreated, LocalDateTime timeLastEdit) {
+        super(id, number, timeCreated, timeLastEdit);
+        this.name = name;
+        this.surname = surname;
+        this.birthDay = birthDay;
+        this.gender = gender;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        surname = (String) fields.get("surname", null);
+        gender = (String) fields.get("gender", "[no data]");
+        if (fields.defaulted("birthDay")) {
+            // written when the birth date was kept as a String
+            birthDay = toBirthDay((String) fields.get("birthDate", null));
+        } else {
+            birthDay = fields.get("birthDay", NO_BIRTH_DAY);
+        }
+    }
+
     public void setName(String name) {
         this.name = (name == null) ? "" : name;
         touch();
@@ -99,37 +231,72 @@ class PersonContact extends Contact {
     }
 
     public void setBirthDate(String birthDateInput) {
-        if (birthDateInput == null || birthDateInput.isEmpty()) {
+        this.birthDay = checkedBirthDay(birthDateInput);
+        touch();
+    }
+
+    @Override
+    int getBirthDay() {
+        return birthDay;
+    }
+
+    // null when unknown
+    LocalDate getBirthDate() {
+        return birthDay == NO_BIRTH_DAY ? null : LocalDate.ofEpochDay(birthDay);
+    }
+
+    public void setGender(String genderInput) {
+        this.gender = checkedGender(genderInput);
+        touch();
+    }
+
+    static String checkedBirthDate(String birthDateInput) {
+        return formatBirthDay(checkedBirthDay(birthDateInput));
+    }
+
+    static int checkedBirthDay(String birthDateInput) {
+        int day = NO_BIRTH_DAY;
+        if (birthDateInput != null && !birthDateInput.isEmpty()) {
+            day = toBirthDay(birthDateInput.trim());
+        }
+        if (day == NO_BIRTH_DAY) {
             System.out.println("Bad birth date!");
-            this.birthDate = "[no data]";
-            touch();
-            return;
+        }
+        return day;
+    }
+
+    // yyyy-MM-dd -> epoch day; NO_BIRTH_DAY for "[no data]" or anything unparseable
+    static int toBirthDay(String birthDate) {
+        if (birthDate == null) {
+            return NO_BIRTH_DAY;
         }
         try {
-            LocalDate.parse(birthDateInput.trim()); // yyyy-MM-dd
-            this.birthDate = birthDateInput.trim();
-        } catch (Exception e) {
-            System.out.println("Bad birth date!");
-            this.birthDate = "[no data]";
+            return Math.toIntExact(LocalDate.parse(birthDate).toEpochDay());
+        } catch (DateTimeException | ArithmeticException e) {
+            return NO_BIRTH_DAY;
         }
-        touch();
     }
 
-    public void setGender(String genderInput) {
+    static String formatBirthDay(int birthDay) {
+        return birthDay == NO_BIRTH_DAY ? "[no data]" : LocalDate.ofEpochDay(birthDay).toString();
+    }
+
+    static String checkedGender(String genderInput) {
         if (genderInput == null || genderInput.isEmpty()) {
             System.out.println("Bad gender!");
-            this.gender = "[no data]";
-            touch();
-            return;
+            return "[no data]";
         }
         String g = genderInput.trim().toUpperCase(Locale.ROOT);
         if (g.equals("M") || g.equals("F")) {
-            this.gender = g;
-        } else {
-            System.out.println("Bad gender!");
-            this.gender = "[no data]";
+            return g;
         }
-        touch();
+        System.out.println("Bad gender!");
+        return "[no data]";
+    }
+
+    @Override
+    String getType() {
+        return "person";
     }
 
     @Override
@@ -141,7 +308,7 @@ class PersonContact extends Contact {
     public void printInfo() {
         System.out.println("Name: " + name);
         System.out.println("Surname: " + surname);
-        System.out.println("Birth date: " + birthDate);
+        System.out.println("Birth date: " + formatBirthDay(birthDay));
         System.out.println("Gender: " + gender);
         System.out.println("Number: " + getNumberPrintable());
         System.out.println("Time created: " + getTimeCreated());
@@ -184,7 +351,7 @@ class PersonContact extends Contact {
             case "surname":
                 return surname;
             case "birth":
-                return birthDate;
+                return formatBirthDay(birthDay);
             case "gender":
                 return gender;
             case "number":
@@ -197,7 +364,8 @@ class PersonContact extends Contact {
     @Override
     public String getSearchText() {
         // append all fields for searching
-        return (name + " " + surname + " " + birthDate + " " + gender + " " + getNumberPrintable()).toLowerCase(Locale.ROOT);
+        return (name + " " + surname + " " + formatBirthDay(birthDay) + " " + gender + " " + getNumberPrintable())
+                .toLowerCase(Locale.ROOT);
     }
 }
 
@@ -213,6 +381,13 @@ class OrganizationContact extends Contact {
         setAddress(address);
     }
 
+    OrganizationContact(long id, String name, String address, String number,
+                        LocalDateTime timeCreated, LocalDateTime timeLastEdit) {
+        super(id, number, timeCreated, timeLastEdit);
+        this.name = name;
+        this.address = address;
+    }
+
     public void setName(String name) {
         this.name = (name == null) ? "" : name;
         touch();
@@ -223,6 +398,11 @@ class OrganizationContact extends Contact {
         touch();
     }
 
+    @Override
+    String getType() {
+        return "organization";
+    }
+
     @Override
     public String getListName() {
         return name;
@@ -283,16 +463,38 @@ public class App {
     static Scanner sc = new Scanner(System.in, StandardCharsets.UTF_8.name());
     static List<Contact> contacts = new ArrayList<>();
     static String fileName = null;
+    static ShardedStore store = null; // set when the book is split over segment files
+    static boolean columnar = false;   // keep contacts in a ColumnarStore instead of an ArrayList
+    static final TimeIndex timeIndex = new TimeIndex(App::contactById);
+    static final BirthdayIndex birthdays = new BirthdayIndex(App::contactById);
+    static final ChangeFeed changes = new ChangeFeed(); // every add, edit and delete, for replicas
+    static final VersionedBook versions = new VersionedBook(); // what saves, searches and the list read
+    static boolean followMode = false;   // read-only replica of a book written by another process
+    static FollowerBook follower = null;
+    private static String shownDamage = null;  // follower read problems the user was told about
+
+    static {
+        Contact.addTouchListener(timeIndex);
+    }
 
     public static void main(String[] args) {
         if (args.length > 0) {
             fileName = args[0];
-            load();
+            parseOptions(Arrays.copyOfRange(args, 1, args.length));
+            if (followMode) {
+                startFollowing();
+            } else {
+                load();
+            }
         }
 
         while (true) {
-            System.out.print("[menu] Enter action (add, list, search, count, exit): ");
+            System.out.print("[menu] Enter action (add, list, search, bulk, count, dedup, exit): ");
             String action = sc.nextLine().trim();
+            if (follower != null) {
+                contacts = follower.contacts(); // latest published refresh
+                reportDamage();
+            }
 
             switch (action) {
                 case "add":
@@ -304,10 +506,19 @@ public class App {
                 case "search":
                     searchMenu();
                     break;
+                case "bulk":
+                    bulkMenu();
+                    break;
                 case "count":
                     count();
                     break;
+                case "dedup":
+                    dedupMenu();
+                    break;
                 case "exit":
+                    if (follower != null) {
+                        follower.close();
+                    }
                     return;
                 default:
                     break;
@@ -318,31 +529,181 @@ public class App {
         }
     }
 
+    // ---------- Options ----------
+    static void parseOptions(String[] options) {
+        for (String option : options) {
+            if (option.startsWith("--shards=")) {
+                String n = option.substring("--shards=".length());
+                // at most 9 digits always fits an int; anything longer is ignored like other bad values
+                if (isNumber(n) && n.length() <= 9 && Integer.parseInt(n) > 0) {
+                    store = new ShardedStore(fileName, Integer.parseInt(n));
+                }
+            } else if ("--columnar".equals(option)) {
+                columnar = true;
+            } else if ("--follow".equals(option)) {
+                followMode = true;
+            }
+        }
+    }
+
     // ---------- Save / Load ----------
+    // Writes a pinned version, so an edit made meanwhile is either in the file or not, never half.
     static void save() {
         if (fileName == null) return;
 
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-            oos.writeObject(contacts);
+        try (VersionedBook.Snapshot snapshot = versions.pin()) {
+            if (store != null) {
+                store.save(snapshot.toContacts());
+                return;
+            }
+            snapshot.writeTo(new File(fileName));
         } catch (IOException ignored) {
         }
     }
 
-    @SuppressWarnings("unchecked")
+    static void writeContacts(File f, List<Contact> list) throws IOException {
+        ChunkedFile.write(f, list);
+    }
+
     static void load() {
+        if (store != null) {
+            contacts = adopt(store.load());
+            for (Map.Entry<File, String> e : store.loadFailures().entrySet()) {
+                System.out.println("Cannot read " + e.getKey().getName() + " (" + e.getValue() + "), its records"
+                        + " are left out. It is not overwritten until it can be read again.");
+                keepOriginal(e.getKey());
+            }
+            rebuildIndexes();
+            return;
+        }
+
         File f = new File(fileName);
         if (!f.exists()) {
-            contacts = new ArrayList<>();
+            contacts = adopt(new ArrayList<>());
+            rebuildIndexes();
             save(); // create empty file
             return;
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
-            Object obj = ois.readObject();
-            contacts = (List<Contact>) obj;
+        try {
+            if (ChunkedFile.isChunked(f)) {
+                loadChunks(f);
+                return;
+            }
+            contacts = adopt(readContacts(f));
         } catch (IOException | ClassNotFoundException | ClassCastException e) {
-            contacts = new ArrayList<>();
+            System.out.println("Cannot read " + fileName + ", starting with an empty book.");
+            keepOriginal(f);
+            contacts = adopt(new ArrayList<>());
+        }
+        rebuildIndexes();
+    }
+
+    // chunks are decoded in parallel; each one is indexed while later ones still decode
+    private static void loadChunks(File f) throws IOException {
+        contacts = adopt(new ArrayList<>());
+        timeIndex.rebuild(contacts);
+        birthdays.rebuild(contacts);
+        ChunkedFile.Report report = ChunkedFile.read(f, App::addLoadedChunk, new LoadProgress());
+        versions.reset(contacts);
+        if (report.failedChunks > 0) {
+            System.out.println(report.lostRecords + " records in " + report.failedChunks
+                    + " damaged chunks were skipped.");
+            keepOriginal(f);
+        }
+    }
+
+    private static void addLoadedChunk(List<Contact> chunk) {
+        int from = contacts.size();
+        contacts.addAll(chunk);
+        for (int i = from; i < contacts.size(); i++) {
+            Contact c = contacts.get(i);
+            timeIndex.add(c);
+            birthdays.add(c);
+        }
+    }
+
+    // the next save may overwrite the file; keep what could not be read
+    private static void keepOriginal(File f) {
+        File copy = new File(f.getPath() + ".damaged");
+        try {
+            Files.copy(f.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("The original file is kept as " + copy.getName() + ".");
+        } catch (IOException e) {
+            System.out.println("Cannot keep a copy of the original file.");
+        }
+    }
+
+    // prints every tenth of a multi-chunk load, and every damaged chunk
+    private static final class LoadProgress implements ChunkedFile.Listener {
+        private int lastStep = 0;
+
+        @Override
+        public void loaded(int chunk, int chunks, long records, long totalRecords) {
+            if (chunks < 2) return;
+            int step = (int) ((chunk + 1) * 10L / chunks);
+            if (step > lastStep) {
+                lastStep = step;
+                System.out.println("Loading " + step * 10 + "% (" + records + " of " + totalRecords + " records)");
+            }
+        }
+
+        @Override
+        public void failed(int chunk, int chunks, int records, Exception cause) {
+            System.out.println("Chunk " + (chunk + 1) + " of " + chunks + " is damaged (" + cause.getMessage()
+                    + "), " + records + " records skipped.");
+        }
+    }
+
+    static void rebuildIndexes() {
+        timeIndex.rebuild(contacts);
+        birthdays.rebuild(contacts);
+        versions.reset(contacts);
+    }
+
+    // either layout: chunked, or one serialized list as written before chunking
+    @SuppressWarnings("unchecked")
+    static List<Contact> readContacts(File f) throws IOException, ClassNotFoundException {
+        if (ChunkedFile.isChunked(f)) {
+            return ChunkedFile.readAll(f);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f))) {
+            Object obj = ois.readObject();
+            return (List<Contact>) obj;
+        }
+    }
+
+    private static List<Contact> adopt(List<Contact> loaded) {
+        return columnar ? ColumnarStore.copyOf(loaded) : loaded;
+    }
+
+    static void startFollowing() {
+        follower = new FollowerBook(fileName, store);
+        follower.refreshAll();
+        contacts = follower.contacts();
+        reportDamage();
+        try {
+            follower.start();
+        } catch (IOException e) {
+            System.out.println("Cannot watch " + fileName + ", updates will not be seen.");
+        }
+    }
+
+    // tells about parts of the followed book that could not be read, once per new problem
+    private static void reportDamage() {
+        String damage = follower.damage();
+        if (damage != null && !damage.equals(shownDamage)) {
+            System.out.println(damage);
+        }
+        shownDamage = damage;
+    }
+
+    private static boolean isReadOnly() {
+        if (follower != null) {
+            System.out.println("The book is read-only in follow mode.");
+            return true;
         }
+        return false;
     }
 
     static void printSavedIfFile() {
@@ -353,6 +714,8 @@ public class App {
 
     // ---------- Menu actions ----------
     private static void add() {
+        if (isReadOnly()) return;
+
         System.out.print("Enter the type (person, organization): ");
         String type = sc.nextLine().trim();
 
@@ -372,7 +735,9 @@ public class App {
             System.out.print("Enter the number: ");
             String number = sc.nextLine();
 
-            contacts.add(new PersonContact(name, surname, birth, gender, number));
+            Contact c = new PersonContact(name, surname, birth, gender, number);
+            contacts.add(c);
+            recordAdded(c);
             save();
             System.out.println("The record added.");
             printSavedIfFile();
@@ -387,7 +752,9 @@ public class App {
             System.out.print("Enter the number: ");
             String number = sc.nextLine();
 
-            contacts.add(new OrganizationContact(orgName, address, number));
+            Contact c = new OrganizationContact(orgName, address, number);
+            contacts.add(c);
+            recordAdded(c);
             save();
             System.out.println("The record added.");
             printSavedIfFile();
@@ -400,9 +767,8 @@ public class App {
 
     // ---------- List flow ----------
     private static void listMenu() {
-        for (int i = 0; i < contacts.size(); i++) {
-            System.out.println((i + 1) + ". " + contacts.get(i).getListName());
-        }
+        List<Integer> listed = readIndexes(v -> true);
+        printNames(listed);
 
         while (true) {
             System.out.print("[list] Enter action ([number], back): ");
@@ -411,9 +777,9 @@ public class App {
             if ("back".equals(cmd)) return;
 
             if (isNumber(cmd)) {
-                int idx = Integer.parseInt(cmd) - 1;
-                if (idx >= 0 && idx < contacts.size()) {
-                    recordMenu(idx);
+                int pos = Integer.parseInt(cmd) - 1;
+                if (pos >= 0 && pos < listed.size()) {
+                    recordMenu(listed.get(pos));
                     System.out.println();
                     return;
                 }
@@ -426,7 +792,7 @@ public class App {
         List<Integer> lastResults = doSearchOnce();
 
         while (true) {
-            System.out.print("[search] Enter action ([number], back, again): ");
+            System.out.print("[search] Enter action ([number], back, again, birthdays, age): ");
             String cmd = sc.nextLine().trim();
 
             if ("back".equals(cmd)) return;
@@ -436,6 +802,16 @@ public class App {
                 continue;
             }
 
+            if ("birthdays".equals(cmd)) {
+                lastResults = doBirthdaySearch();
+                continue;
+            }
+
+            if ("age".equals(cmd)) {
+                lastResults = doAgeSearch();
+                continue;
+            }
+
             if (isNumber(cmd)) {
                 int pos = Integer.parseInt(cmd) - 1;
                 if (pos >= 0 && pos < lastResults.size()) {
@@ -452,14 +828,154 @@ public class App {
         System.out.print("Enter search query: ");
         String q = sc.nextLine();
 
-        Pattern pattern;
+        List<Integer> results = searchIndexes(compileQuery(q));
+        printResults(results);
+        return results;
+    }
+
+    private static List<Integer> doBirthdaySearch() {
+        System.out.print("Enter number of days: ");
+        String days = sc.nextLine().trim();
+        if (!isNumber(days) || days.length() > 3) {
+            System.out.println("Bad number of days!");
+            return Collections.emptyList();
+        }
+        List<Integer> results = indexesOf(birthdayIndex().upcoming(LocalDate.now(), Integer.parseInt(days)));
+        printResults(results);
+        return results;
+    }
+
+    private static List<Integer> doAgeSearch() {
+        System.out.print("Enter age range (min-max): ");
+        String[] range = sc.nextLine().trim().split("\\s*-\\s*", -1);
+        if (range.length != 2 || !isNumber(range[0]) || !isNumber(range[1])
+                || range[0].length() > 6 || range[1].length() > 6
+                || Integer.parseInt(range[0]) > Integer.parseInt(range[1])) {
+            System.out.println("Bad age range!");
+            return Collections.emptyList();
+        }
+        List<Integer> results = indexesOf(birthdayIndex().ageBetween(LocalDate.now(),
+                Integer.parseInt(range[0]), Integer.parseInt(range[1])));
+        printResults(results);
+        return results;
+    }
+
+    // in follow mode the follower keeps the indexes up to date with every refresh
+    private static BirthdayIndex birthdayIndex() {
+        return follower != null ? follower.birthdays() : birthdays;
+    }
+
+    // for "edited since" sync; App.timeIndex only follows this process's own edits
+    static TimeIndex activeTimeIndex() {
+        return follower != null ? follower.timeIndex() : timeIndex;
+    }
+
+    // positions of the given contacts in the book, in the given order; O(k log N)
+    static List<Integer> indexesOf(List<Contact> found) {
+        List<Integer> results = new ArrayList<>(found.size());
+        for (Contact c : found) {
+            int i = positionOf(c.getId());
+            if (i >= 0) {
+                results.add(i);
+            }
+        }
+        return results;
+    }
+
+    // The book is kept in id order: new contacts get the highest id and go last, and files
+    // keep the order they were saved in. So this is a binary search; a book that is out of
+    // order anyway is scanned. -1 if no contact has the id.
+    static int positionOf(long id) {
+        return positionOf(contacts, id);
+    }
+
+    private static int positionOf(List<Contact> list, long id) {
+        if (list instanceof ColumnarStore) {
+            return ((ColumnarStore) list).indexOfId(id);
+        }
+        int lo = 0;
+        int hi = list.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midId = list.get(mid).getId();
+            if (midId == id) return mid;
+            if (midId < id) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getId() == id) return i;
+        }
+        return -1;
+    }
+
+    // resolves index entries to contacts
+    static Contact contactById(long id) {
+        List<Contact> list = contacts;
+        int i = positionOf(list, id);
+        return i < 0 ? null : list.get(i);
+    }
+
+    private static void printResults(List<Integer> results) {
+        System.out.println("Found " + results.size() + " results:");
+        printNames(results);
+    }
+
+    private static void printNames(List<Integer> positions) {
+        for (int i = 0; i < positions.size(); i++) {
+            System.out.println((i + 1) + ". " + contacts.get(positions.get(i)).getListName());
+        }
+    }
+
+    static Pattern compileQuery(String q) {
         try {
-            pattern = Pattern.compile(q, Pattern.CASE_INSENSITIVE);
+            return Pattern.compile(q, Pattern.CASE_INSENSITIVE);
         } catch (PatternSyntaxException e) {
             // if user typed bad regex, treat it as plain text
-            pattern = Pattern.compile(Pattern.quote(q), Pattern.CASE_INSENSITIVE);
+            return Pattern.compile(Pattern.quote(q), Pattern.CASE_INSENSITIVE);
+        }
+    }
+
+    // Searches for readers: the matching runs on a pinned version, so it never sees an edit
+    // half done. In follow mode the published list already is such a version.
+    static List<Integer> searchIndexes(Pattern pattern) {
+        if (follower != null) {
+            return matchingIndexes(pattern);
+        }
+        return readIndexes(v -> pattern.matcher(v.getSearchText()).find());
+    }
+
+    // positions of the contacts whose pinned version matches, in list order
+    private static List<Integer> readIndexes(Predicate<VersionedBook.ContactVersion> filter) {
+        if (follower != null) {
+            List<Integer> all = new ArrayList<>(contacts.size());
+            for (int i = 0; i < contacts.size(); i++) {
+                all.add(i);
+            }
+            return all;
         }
+        List<Integer> results = new ArrayList<>();
+        try (VersionedBook.Snapshot snapshot = versions.pin()) {
+            snapshot.stream().filter(filter).forEach(v -> {
+                int i = positionOf(v.id);
+                if (i >= 0) {
+                    results.add(i);
+                }
+            });
+        }
+        return results;
+    }
 
+    // Matching for writers such as the bulk actions, on the live list and its fast scans.
+    static List<Integer> matchingIndexes(Pattern pattern) {
+        if (contacts instanceof ColumnarStore) {
+            return ((ColumnarStore) contacts).search(pattern);
+        }
+        if (store != null) {
+            return store.search(contacts, pattern);
+        }
         List<Integer> results = new ArrayList<>();
         for (int i = 0; i < contacts.size(); i++) {
             String text = contacts.get(i).getSearchText();
@@ -467,12 +983,162 @@ public class App {
                 results.add(i);
             }
         }
+        return results;
+    }
 
-        System.out.println("Found " + results.size() + " results:");
-        for (int i = 0; i < results.size(); i++) {
-            System.out.println((i + 1) + ". " + contacts.get(results.get(i)).getListName());
+    // ---------- Bulk flow ----------
+    private static void bulkMenu() {
+        if (isReadOnly()) return;
+
+        System.out.print("Enter bulk action (delete, set): ");
+        String action = sc.nextLine().trim();
+        if (!"delete".equals(action) && !"set".equals(action)) return;
+
+        System.out.print("Enter search query: ");
+        Pattern pattern = compileQuery(sc.nextLine());
+
+        if ("delete".equals(action)) {
+            int removed = deleteWhere(pattern);
+            save();
+            System.out.println(removed + " records removed!");
+            printSavedIfFile();
+            return;
         }
-        return results;
+
+        System.out.print("Enter field: ");
+        String field = sc.nextLine().trim();
+        System.out.print("Enter " + field + ": ");
+        String value = sc.nextLine();
+
+        int updated = setWhere(pattern, field, value);
+        if (updated < 0) return;
+        save();
+        System.out.println(updated + " records updated!");
+        printSavedIfFile();
+    }
+
+    // One matching pass, one compaction of the list, one new version of App.versions.
+    static int deleteWhere(Pattern pattern) {
+        List<Contact> doomed = new ArrayList<>();
+        for (int i : matchingIndexes(pattern)) {
+            doomed.add(contacts.get(i));
+        }
+        if (doomed.isEmpty()) return 0;
+
+        recordRemovedAll(doomed);
+        Set<Long> ids = new HashSet<>();
+        for (Contact c : doomed) {
+            ids.add(c.getId());
+        }
+        contacts.removeIf(c -> ids.contains(c.getId()));
+        return doomed.size();
+    }
+
+    // The value is validated once up front; a bad value updates nothing and returns -1.
+    // Records without the field (e.g. "address" on persons) are skipped.
+    static int setWhere(Pattern pattern, String field, String value) {
+        String checked;
+        switch (field) {
+            case "number":
+                checked = Contact.checkedNumber(value);
+                if (checked.isEmpty() && value != null && !value.isEmpty()) return -1;
+                break;
+            case "birth":
+                checked = PersonContact.checkedBirthDate(value);
+                if ("[no data]".equals(checked)) return -1;
+                break;
+            case "gender":
+                checked = PersonContact.checkedGender(value);
+                if ("[no data]".equals(checked)) return -1;
+                break;
+            default:
+                checked = value;
+                break;
+        }
+
+        List<Contact> edited = new ArrayList<>();
+        List<String> before = new ArrayList<>();
+        for (int i : matchingIndexes(pattern)) {
+            Contact c = contacts.get(i);
+            if (!Arrays.asList(c.getEditableFields()).contains(field)) continue;
+            before.add(c.toFields().get(field));
+            c.setField(field, checked);
+            edited.add(c);
+        }
+        recordEditedAll(edited, field, before);
+        return edited.size();
+    }
+
+    // ---------- Dedup flow ----------
+    private static void dedupMenu() {
+        if (isReadOnly()) return;
+
+        List<Deduplicator.Candidate> candidates =
+                Deduplicator.findCandidates(contacts, Deduplicator.DEFAULT_THRESHOLD);
+        System.out.println("Found " + candidates.size() + " possible duplicates:");
+        for (int i = 0; i < candidates.size(); i++) {
+            System.out.println((i + 1) + ". " + candidates.get(i));
+        }
+
+        while (true) {
+            System.out.print("[dedup] Enter action ([number], auto, back): ");
+            String cmd = sc.nextLine().trim();
+
+            if ("back".equals(cmd)) return;
+
+            List<Deduplicator.Candidate> chosen = null;
+            if ("auto".equals(cmd)) {
+                chosen = new ArrayList<>();
+                for (Deduplicator.Candidate c : candidates) {
+                    if (c.score >= Deduplicator.AUTO_MERGE_THRESHOLD) {
+                        chosen.add(c);
+                    }
+                }
+            } else if (isNumber(cmd)) {
+                int pos = Integer.parseInt(cmd) - 1;
+                if (pos >= 0 && pos < candidates.size()) {
+                    chosen = Collections.singletonList(candidates.get(pos));
+                }
+            }
+
+            if (chosen != null) {
+                int merged = mergeDuplicates(chosen);
+                save();
+                System.out.println("Merged " + merged + " duplicate records.");
+                printSavedIfFile();
+                return;
+            }
+        }
+    }
+
+    // Merges every pair into its survivor; a record already merged away is replaced by
+    // the record it went into, so chains like a~b, b~c end up as one record.
+    static int mergeDuplicates(List<Deduplicator.Candidate> pairs) {
+        Map<Long, Contact> mergedInto = new HashMap<>();
+        for (Deduplicator.Candidate pair : pairs) {
+            Contact a = resolveMerged(pair.first, mergedInto);
+            Contact b = resolveMerged(pair.second, mergedInto);
+            if (a.getId() == b.getId()) continue;
+
+            Contact keep = Deduplicator.survivor(a, b);
+            Contact drop = (keep == a) ? b : a;
+            for (Map.Entry<String, String> e : Deduplicator.merge(keep, drop).entrySet()) {
+                recordEdited(keep, e.getKey(), e.getValue());
+            }
+            recordRemoved(drop);
+            mergedInto.put(drop.getId(), keep);
+        }
+        if (!mergedInto.isEmpty()) {
+            contacts.removeIf(c -> mergedInto.containsKey(c.getId()));
+        }
+        return mergedInto.size();
+    }
+
+    private static Contact resolveMerged(Contact c, Map<Long, Contact> mergedInto) {
+        while (mergedInto.containsKey(c.getId())) {
+            c = mergedInto.get(c.getId());
+        }
+        return c;
     }
 
     // ---------- Record flow ----------
@@ -487,7 +1153,12 @@ public class App {
 
             if ("menu".equals(action)) return;
 
+            if (("delete".equals(action) || "edit".equals(action)) && isReadOnly()) {
+                continue;
+            }
+
             if ("delete".equals(action)) {
+                recordRemoved(c);
                 contacts.remove(idx);
                 save();
                 System.out.println("The record removed!");
@@ -513,10 +1184,61 @@ public class App {
         System.out.print("Enter " + field + ": ");
         String value = sc.nextLine();
 
+        String before = Arrays.asList(fields).contains(field) ? c.toFields().get(field) : null;
         c.setField(field, value);
+        if (before != null) {
+            recordEdited(c, field, before);
+        }
         System.out.println("The record updated!");
     }
 
+    // every mutation of the book goes through one of these before save()
+    static void recordAdded(Contact c) {
+        if (store != null) {
+            store.markDirty(c);
+        }
+        timeIndex.add(c);
+        birthdays.add(c);
+        versions.put(c);
+        changes.publishAdd(c);
+    }
+
+    static void recordEdited(Contact c, String field, String before) {
+        recordEditedAll(Collections.singletonList(c), field, Collections.singletonList(before));
+    }
+
+    private static void recordEditedAll(List<Contact> edited, String field, List<String> before) {
+        for (int i = 0; i < edited.size(); i++) {
+            Contact c = edited.get(i);
+            if (store != null) {
+                store.markDirty(c);
+            }
+            if ("birth".equals(field)) {
+                birthdays.changed(c, PersonContact.toBirthDay(before.get(i)));
+            }
+            changes.publishEdit(c, field, before.get(i), c.toFields().get(field));
+        }
+        versions.putAll(edited);
+    }
+
+    static void recordRemoved(Contact c) {
+        recordRemovedAll(Collections.singletonList(c));
+    }
+
+    private static void recordRemovedAll(List<Contact> removed) {
+        List<Long> ids = new ArrayList<>(removed.size());
+        for (Contact c : removed) {
+            if (store != null) {
+                store.markDirty(c);
+            }
+            timeIndex.remove(c);
+            birthdays.remove(c);
+            changes.publishDelete(c);
+            ids.add(c.getId());
+        }
+        versions.removeAll(ids);
+    }
+
     // ---------- helpers ----------
     private static boolean isNumber(String s) {
         if (s == null || s.isEmpty()) return false;
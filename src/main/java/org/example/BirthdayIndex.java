@@ -0,0 +1,149 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongFunction;
+
+// Birth-date lookups over the typed birth days of persons.
+// byMonthDay orders contacts by their day in a leap year (Feb 29 has its own slot), so
+// "birthdays in the next N days" reads at most N + 1 ranges. byBirthDay keeps them in birth
+// order, so an age range is one sub-set. Entries are only (day, id) pairs and queries look
+// the contacts up through the resolver. Birth date edits are reported through changed().
+class BirthdayIndex {
+    static final int MAX_AGE = 1_000_000;
+
+    private static final int LEAP_YEAR = 2000;
+    private static final int FEB_29 = bucketOf(LocalDate.of(LEAP_YEAR, Month.FEBRUARY, 29));
+
+    private final LongFunction<Contact> resolver;
+    private final ConcurrentSkipListSet<Key> byMonthDay = new ConcurrentSkipListSet<>(); // (0..365, id)
+    private final ConcurrentSkipListSet<Key> byBirthDay = new ConcurrentSkipListSet<>(); // (epoch day, id)
+
+    static final class Key implements Comparable<Key> {
+        final int day;
+        final long id;
+
+        Key(int day, long id) {
+            this.day = day;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int byDay = Integer.compare(day, o.day);
+            return byDay != 0 ? byDay : Long.compare(id, o.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && compareTo((Key) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return day * 31 + Long.hashCode(id);
+        }
+    }
+
+    // resolver: id -> the contact in the book, or null if it is gone
+    BirthdayIndex(LongFunction<Contact> resolver) {
+        this.resolver = resolver;
+    }
+
+    // 0..365, the day of year the date's month and day fall on in a leap year
+    private static int bucketOf(LocalDate date) {
+        return LocalDate.of(LEAP_YEAR, date.getMonth(), date.getDayOfMonth()).getDayOfYear() - 1;
+    }
+
+    // ---------- Maintenance ----------
+    void add(Contact c) {
+        link(c.getId(), c.getBirthDay());
+    }
+
+    void remove(Contact c) {
+        unlink(c.getId(), c.getBirthDay());
+    }
+
+    // c is in the book and its birth day was previousDay until now
+    void changed(Contact c, int previousDay) {
+        unlink(c.getId(), previousDay);
+        link(c.getId(), c.getBirthDay());
+    }
+
+    void rebuild(Collection<? extends Contact> contacts) {
+        byBirthDay.clear();
+        byMonthDay.clear();
+        for (Contact c : contacts) {
+            add(c);
+        }
+    }
+
+    // contacts with a known birth date
+    int size() {
+        return byBirthDay.size();
+    }
+
+    private void link(long id, int day) {
+        if (day == PersonContact.NO_BIRTH_DAY) return;
+        byBirthDay.add(new Key(day, id));
+        byMonthDay.add(new Key(bucketOf(LocalDate.ofEpochDay(day)), id));
+    }
+
+    private void unlink(long id, int day) {
+        if (day == PersonContact.NO_BIRTH_DAY) return;
+        byBirthDay.remove(new Key(day, id));
+        byMonthDay.remove(new Key(bucketOf(LocalDate.ofEpochDay(day)), id));
+    }
+
+    // ---------- Queries ----------
+    // Birthdays from today through today + days, soonest first (ties by id).
+    // Outside leap years, Feb 29 birthdays are celebrated on Feb 28.
+    List<Contact> upcoming(LocalDate today, int days) {
+        List<Contact> result = new ArrayList<>();
+        boolean[] seen = new boolean[366];
+        int span = Math.min(Math.max(days, 0), 365);
+        for (int i = 0; i <= span; i++) {
+            LocalDate date = today.plusDays(i);
+            collect(bucketOf(date), seen, result);
+            if (!date.isLeapYear() && date.getMonth() == Month.FEBRUARY && date.getDayOfMonth() == 28) {
+                collect(FEB_29, seen, result);
+            }
+        }
+        return result;
+    }
+
+    private void collect(int bucket, boolean[] seen, List<Contact> result) {
+        if (seen[bucket]) return;
+        seen[bucket] = true;
+        resolve(byMonthDay.subSet(new Key(bucket, Long.MIN_VALUE), true, new Key(bucket, Long.MAX_VALUE), true),
+                result);
+    }
+
+    // Persons whose age today is between min and max years, both inclusive, oldest first.
+    List<Contact> ageBetween(LocalDate today, int min, int max) {
+        min = Math.max(min, 0);
+        max = Math.min(max, MAX_AGE);
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        // age >= min: born on or before today - min years
+        // age <= max: born after today - (max + 1) years
+        int last = Math.toIntExact(today.minusYears(min).toEpochDay());
+        int first = Math.toIntExact(today.minusYears(max + 1L).toEpochDay()) + 1;
+        List<Contact> result = new ArrayList<>();
+        resolve(byBirthDay.subSet(new Key(first, Long.MIN_VALUE), true, new Key(last, Long.MAX_VALUE), true),
+                result);
+        return result;
+    }
+
+    private void resolve(Collection<Key> keys, List<Contact> result) {
+        for (Key k : keys) {
+            Contact c = resolver.apply(k.id);
+            if (c != null) {
+                result.add(c);
+            }
+        }
+    }
+}
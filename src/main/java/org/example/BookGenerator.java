@@ -0,0 +1,194 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Seeded generator of realistic phone books for load and soak tests.
+// The same seed, share and formats always give the same field values and timestamps; only
+// ids are fresh. Timestamps fall in the years after a fixed base, never the wall clock, so
+// runs are reproducible and time queries see a spread of ages. Numbers cover every shape isValidNumber accepts, and about one in ten persons
+// has no birth date or gender. Contacts are built like restored ones, without validation
+// (and its messages), so generating millions stays cheap.
+final class BookGenerator {
+
+    enum NumberFormat {
+        NONE,          // no number at all
+        PLAIN,         // 5551234567
+        GROUPED,       // +1 555-123-4567
+        LETTERS,       // 1-800-FLOWERS
+        PAREN_FIRST,   // (555) 123-4567
+        PAREN_SECOND   // +1 (555) 123-4567
+    }
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth",
+            "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Aarav", "Priya", "Wei", "Mei", "Olga", "Ivan", "Fatima", "Omar", "Lucia", "Mateo"};
+    private static final String[] SURNAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+            "Sharma", "Patel", "Wang", "Li", "Ivanova", "Petrov", "Khan", "Haddad", "Rossi", "Silva"};
+    private static final String[] ORG_WORDS = {
+            "Acme", "Globex", "Initech", "Umbrella", "Stark", "Wayne", "Hooli", "Vandelay", "Soylent", "Cyberdyne",
+            "Northwind", "Contoso", "Fabrikam", "Tailspin", "Litware"};
+    private static final String[] ORG_KINDS = {
+            "Ltd", "Inc", "Group", "Bank", "Clinic", "Pizza", "Motors", "Labs", "Logistics", "Bakery"};
+    private static final String[] STREETS = {
+            "Main St", "High St", "Park Ave", "Oak St", "Maple Ave", "Station Rd", "Church St", "Mill Lane",
+            "MG Road", "Nehru Place"};
+    private static final String[] CITIES = {
+            "Delhi", "Mumbai", "London", "New York", "Berlin", "Madrid", "Tokyo", "Sydney", "Toronto", "Cairo"};
+    private static final String[] VANITY = {"FLOWERS", "CALLNOW", "PIZZA", "TAXI", "HELP", "DOCTOR"};
+
+    private static final int FIRST_BIRTH_DAY = (int) LocalDate.of(1930, 1, 1).toEpochDay();
+    private static final int LAST_BIRTH_DAY = (int) LocalDate.of(2015, 12, 31).toEpochDay();
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final int CREATED_SPAN_SECONDS = 3 * 365 * 24 * 3600;
+    private static final int EDIT_SPAN_SECONDS = 365 * 24 * 3600;
+
+    private final Random random;
+    private final double personShare;
+    private final NumberFormat[] formats;
+
+    BookGenerator(long seed) {
+        this(seed, 0.7, NumberFormat.values());
+    }
+
+    // personShare: 0..1 of the contacts that are persons; formats are picked uniformly
+    BookGenerator(long seed, double personShare, NumberFormat... formats) {
+        if (personShare < 0 || personShare > 1) {
+            throw new IllegalArgumentException("Person share must be between 0 and 1: " + personShare);
+        }
+        if (formats.length == 0) {
+            throw new IllegalArgumentException("At least one number format is needed");
+        }
+        this.random = new Random(seed);
+        this.personShare = personShare;
+        this.formats = formats.clone();
+    }
+
+    // ---------- Contacts ----------
+    List<Contact> generate(int size) {
+        List<Contact> contacts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            contacts.add(next());
+        }
+        return contacts;
+    }
+
+    Contact next() {
+        return random.nextDouble() < personShare ? nextPerson() : nextOrganization();
+    }
+
+    PersonContact nextPerson() {
+        LocalDateTime created = timeCreated();
+        int birthDay = random.nextInt(10) == 0 ? PersonContact.NO_BIRTH_DAY : birthDay();
+        return new PersonContact(Contact.nextId(), pick(FIRST_NAMES), pick(SURNAMES), birthDay, gender(),
+                number(), created, timeLastEdit(created));
+    }
+
+    OrganizationContact nextOrganization() {
+        LocalDateTime created = timeCreated();
+        return new OrganizationContact(Contact.nextId(), organizationName(), address(), number(),
+                created, timeLastEdit(created));
+    }
+
+    // ---------- Field values ----------
+    // a valid new value for an editable field, e.g. for edit traffic
+    String value(String field) {
+        switch (field) {
+            case "name":
+                return pick(FIRST_NAMES);
+            case "surname":
+                return pick(SURNAMES);
+            case "birth":
+                return LocalDate.ofEpochDay(birthDay()).toString();
+            case "gender":
+                return random.nextBoolean() ? "M" : "F";
+            case "address":
+                return address();
+            case "number":
+                return number();
+            default:
+                return organizationName();
+        }
+    }
+
+    String number() {
+        return number(formats[random.nextInt(formats.length)]);
+    }
+
+    String number(NumberFormat format) {
+        switch (format) {
+            case PLAIN:
+                return digits(7 + random.nextInt(5));
+            case GROUPED:
+                return "+" + countryCode() + " " + digits(3) + "-" + digits(3) + "-" + digits(4);
+            case LETTERS:
+                return "1-800-" + pick(VANITY);
+            case PAREN_FIRST:
+                return (random.nextBoolean() ? "+" : "") + "(" + digits(3) + ") " + digits(3) + "-" + digits(4);
+            case PAREN_SECOND:
+                return "+" + countryCode() + " (" + digits(3) + ") " + digits(3) + "-" + digits(4);
+            default:
+                return "";
+        }
+    }
+
+    // a query that finds something in a generated book most of the time
+    String query() {
+        switch (random.nextInt(4)) {
+            case 0:
+                return pick(SURNAMES);
+            case 1:
+                return pick(FIRST_NAMES).substring(0, 3);
+            case 2:
+                return pick(ORG_WORDS);
+            default:
+                return digits(3);
+        }
+    }
+
+    private LocalDateTime timeCreated() {
+        return BASE_TIME.plusSeconds(random.nextInt(CREATED_SPAN_SECONDS));
+    }
+
+    // half of the contacts were never edited after they were created
+    private LocalDateTime timeLastEdit(LocalDateTime created) {
+        return random.nextBoolean() ? created : created.plusSeconds(1 + random.nextInt(EDIT_SPAN_SECONDS));
+    }
+
+    private int birthDay() {
+        return FIRST_BIRTH_DAY + random.nextInt(LAST_BIRTH_DAY - FIRST_BIRTH_DAY + 1);
+    }
+
+    private String gender() {
+        int g = random.nextInt(10);
+        return g == 0 ? "[no data]" : g % 2 == 0 ? "M" : "F";
+    }
+
+    private String organizationName() {
+        return pick(ORG_WORDS) + " " + pick(ORG_KINDS);
+    }
+
+    private String address() {
+        return (1 + random.nextInt(300)) + " " + pick(STREETS) + ", " + pick(CITIES);
+    }
+
+    private String countryCode() {
+        return Integer.toString(1 + random.nextInt(random.nextBoolean() ? 9 : 999));
+    }
+
+    private String digits(int count) {
+        char[] chars = new char[count];
+        for (int i = 0; i < count; i++) {
+            chars[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(chars);
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,310 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+
+// Hosts many phone books in one process, one file per book ("<dir>/<name>.db").
+// Books are loaded on first use and kept in LRU order. When the estimated heap used by
+// all loaded books goes over the budget, the least recently used books that nobody has
+// open are saved (if changed) and dropped. Counters per book survive eviction.
+// A book file that cannot be read is not opened, so it is never overwritten with an empty
+// book. Ids are unique within a book only; two books may hold contacts with equal ids.
+// Files are read outside the manager's lock: a big or slow book does not hold up other
+// tenants, and callers opening the same book meanwhile share its one load.
+final class BookManager implements AutoCloseable {
+    private static final Pattern BOOK_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    static final class Stats {
+        final String name;
+        int records;
+        long estimatedBytes;
+        boolean loaded;
+        long loads;
+        long hits;
+        long saves;
+        long evictions;
+
+        private Stats(String name) {
+            this.name = name;
+        }
+
+        private Stats copy() {
+            Stats s = new Stats(name);
+            s.records = records;
+            s.estimatedBytes = estimatedBytes;
+            s.loaded = loaded;
+            s.loads = loads;
+            s.hits = hits;
+            s.saves = saves;
+            s.evictions = evictions;
+            return s;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + records + " records, ~" + estimatedBytes / 1024 + " KB"
+                    + (loaded ? ", loaded" : "") + ", loads=" + loads + ", hits=" + hits
+                    + ", saves=" + saves + ", evictions=" + evictions;
+        }
+    }
+
+    private static final class Book {
+        final String name;
+        final File file;
+        final List<Contact> contacts;
+        long estimatedBytes;
+        boolean dirty;
+        int openHandles;
+
+        Book(String name, File file, List<Contact> contacts) {
+            this.name = name;
+            this.file = file;
+            this.contacts = contacts;
+        }
+    }
+
+    // Access to one open book. The book cannot be evicted or flushed until the handle is
+    // closed, since its owner may be changing the list; after that the handle refuses to
+    // hand out or mark the book.
+    final class Handle implements AutoCloseable {
+        private final Book book;
+        private volatile boolean closed;
+
+        private Handle(Book book) {
+            this.book = book;
+        }
+
+        String name() {
+            return book.name;
+        }
+
+        List<Contact> contacts() {
+            checkOpen();
+            return book.contacts;
+        }
+
+        // call after changing contacts(); the book is saved on eviction or flush
+        void markDirty() {
+            synchronized (BookManager.this) {
+                checkOpen();
+                book.dirty = true;
+            }
+        }
+
+        private void checkOpen() {
+            if (closed) {
+                throw new IllegalStateException("The handle of book " + book.name + " is closed");
+            }
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    private final File dir;
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Book> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Stats> stats = new TreeMap<>();
+    private final Map<String, CompletableFuture<Book>> loading = new HashMap<>();
+    private boolean closed;
+    private long loadedBytes;
+
+    BookManager(File dir, long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Budget must be positive: " + budgetBytes);
+        }
+        this.dir = dir;
+        this.budgetBytes = budgetBytes;
+    }
+
+    // ---------- Access ----------
+    // fails if the book's file exists but cannot be read
+    Handle open(String name) throws IOException {
+        if (name == null || !BOOK_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Bad book name: " + name);
+        }
+        while (true) {
+            CompletableFuture<Book> pending;
+            boolean loader = false;
+            synchronized (this) {
+                Stats s = stats.computeIfAbsent(name, Stats::new);
+                Book book = loaded.get(name);
+                if (book != null) {
+                    s.hits++;
+                    return handleOf(book);
+                }
+                pending = loading.get(name);
+                if (pending == null) {
+                    pending = new CompletableFuture<>();
+                    loading.put(name, pending);
+                    loader = true;
+                }
+            }
+            if (loader) {
+                return loadAndPublish(name, pending);
+            }
+            awaitLoad(pending);
+            // loaded by another caller: take it from the map, unless it was evicted meanwhile
+        }
+    }
+
+    private Handle loadAndPublish(String name, CompletableFuture<Book> pending) throws IOException {
+        Book book;
+        try {
+            book = load(name);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                loading.remove(name);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            loading.remove(name);
+            loaded.put(name, book);
+            loadedBytes += book.estimatedBytes;
+            Stats s = stats.get(name);
+            s.loads++;
+            s.loaded = true;
+            s.records = book.contacts.size();
+            s.estimatedBytes = book.estimatedBytes;
+            pending.complete(book);
+            return handleOf(book);
+        }
+    }
+
+    private static void awaitLoad(CompletableFuture<Book> pending) throws IOException {
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            throw e;
+        }
+    }
+
+    // caller holds the lock
+    private Handle handleOf(Book book) {
+        book.openHandles++;
+        evictOverBudget();
+        return new Handle(book);
+    }
+
+    private Book load(String name) throws IOException {
+        File file = new File(dir, name + ".db");
+        List<Contact> contacts;
+        try {
+            contacts = file.exists() ? App.readContacts(file) : new ArrayList<>();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Cannot read book " + name + " from " + file + ": " + e.getMessage(), e);
+        }
+        Book book = new Book(name, file, contacts);
+        book.estimatedBytes = estimateBytes(contacts);
+        return book;
+    }
+
+    private synchronized void release(Handle h) {
+        if (h.closed) return;
+        h.closed = true;
+        Book book = h.book;
+        book.openHandles--;
+        if (book.dirty) {
+            // the book may have grown or shrunk while it was open
+            loadedBytes -= book.estimatedBytes;
+            book.estimatedBytes = estimateBytes(book.contacts);
+            loadedBytes += book.estimatedBytes;
+        }
+        Stats s = stats.get(book.name);
+        s.records = book.contacts.size();
+        s.estimatedBytes = book.estimatedBytes;
+        if (closed && book.dirty && book.openHandles == 0) {
+            save(book); // skipped by close() while the handle was open
+        }
+        evictOverBudget();
+    }
+
+    // ---------- Eviction ----------
+    private void evictOverBudget() {
+        Iterator<Book> lru = loaded.values().iterator();
+        while (loadedBytes > budgetBytes && lru.hasNext()) {
+            Book book = lru.next();
+            if (book.openHandles > 0) continue;
+            if (book.dirty && !save(book)) continue; // never drop unsaved changes
+            lru.remove();
+            loadedBytes -= book.estimatedBytes;
+            Stats s = stats.get(book.name);
+            s.loaded = false;
+            s.evictions++;
+        }
+    }
+
+    private boolean save(Book book) {
+        try {
+            App.writeContacts(book.file, book.contacts);
+        } catch (IOException e) {
+            return false;
+        }
+        book.dirty = false;
+        stats.get(book.name).saves++;
+        return true;
+    }
+
+    // Books with open handles are left for their last release(): serializing a list
+    // someone is changing could save a torn book or fail with a concurrent modification.
+    synchronized void flushAll() {
+        for (Book book : loaded.values()) {
+            if (book.dirty && book.openHandles == 0) {
+                save(book);
+            }
+        }
+    }
+
+    // Books still open are saved when their last handle is closed.
+    @Override
+    public synchronized void close() {
+        closed = true;
+        flushAll();
+    }
+
+    // ---------- Stats ----------
+    synchronized Stats stats(String name) {
+        Stats s = stats.get(name);
+        return s == null ? null : s.copy();
+    }
+
+    synchronized List<Stats> allStats() {
+        List<Stats> all = new ArrayList<>();
+        for (Stats s : stats.values()) {
+            all.add(s.copy());
+        }
+        return all;
+    }
+
+    synchronized long loadedBytes() {
+        return loadedBytes;
+    }
+
+    synchronized Set<String> loadedBooks() {
+        return new LinkedHashSet<>(loaded.keySet());
+    }
+
+    // Rough retained size: object headers, two timestamps and the strings' chars.
+    static long estimateBytes(List<Contact> contacts) {
+        long total = 16 + 4L * contacts.size();
+        for (Contact c : contacts) {
+            total += 48 + 2 * 48;
+            for (String value : c.toFields().values()) {
+                total += 40 + 2L * value.length();
+            }
+        }
+        return total;
+    }
+}
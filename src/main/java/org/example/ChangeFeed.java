@@ -0,0 +1,251 @@
+package org.example;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+// Ordered log of add/edit/delete events with increasing sequence numbers.
+// Consumers read from any retained sequence number, either by polling readAfter()
+// or through a Subscription that delivers batches on its own thread.
+// App publishes every mutation of its book to App.changes from its record* hooks.
+final class ChangeFeed {
+    static final int DEFAULT_RETENTION = 100_000;
+
+    enum Type { ADD, EDIT, DELETE }
+
+    static final class ChangeEvent implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long sequence;
+        final Type type;
+        final long contactId;
+        final LocalDateTime time;
+        final Map<String, String> fields; // ADD: the whole record
+        final String field;               // EDIT only
+        final String oldValue;
+        final String newValue;
+        final LocalDateTime timeCreated;  // ADD only
+
+        ChangeEvent(long sequence, Type type, long contactId, LocalDateTime time, Map<String, String> fields,
+                    String field, String oldValue, String newValue, LocalDateTime timeCreated) {
+            this.sequence = sequence;
+            this.type = type;
+            this.contactId = contactId;
+            this.time = time;
+            this.fields = fields;
+            this.field = field;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+            this.timeCreated = timeCreated;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case ADD:
+                    return sequence + " ADD " + contactId + " " + fields;
+                case EDIT:
+                    return sequence + " EDIT " + contactId + " " + field + ": " + oldValue + " -> " + newValue;
+                default:
+                    return sequence + " DELETE " + contactId;
+            }
+        }
+    }
+
+    private final int retention;
+    private final ConcurrentSkipListMap<Long, ChangeEvent> log = new ConcurrentSkipListMap<>();
+    private long lastSequence = 0;
+
+    ChangeFeed() {
+        this(DEFAULT_RETENTION);
+    }
+
+    ChangeFeed(int retention) {
+        if (retention < 1) {
+            throw new IllegalArgumentException("Retention must be positive: " + retention);
+        }
+        this.retention = retention;
+    }
+
+    // ---------- Publishing ----------
+    ChangeEvent publishAdd(Contact c) {
+        return publish(Type.ADD, c.getId(), c.getTimeLastEdit(),
+                Collections.unmodifiableMap(c.toFields()), null, null, null, c.getTimeCreated());
+    }
+
+    ChangeEvent publishEdit(Contact c, String field, String oldValue, String newValue) {
+        return publish(Type.EDIT, c.getId(), c.getTimeLastEdit(), null, field, oldValue, newValue, null);
+    }
+
+    ChangeEvent publishDelete(Contact c) {
+        return publish(Type.DELETE, c.getId(), LocalDateTime.now(), null, null, null, null, null);
+    }
+
+    private synchronized ChangeEvent publish(Type type, long id, LocalDateTime time, Map<String, String> fields,
+                                             String field, String oldValue, String newValue,
+                                             LocalDateTime timeCreated) {
+        ChangeEvent e = new ChangeEvent(++lastSequence, type, id, time, fields, field, oldValue, newValue, timeCreated);
+        log.put(e.sequence, e);
+        while (log.size() > retention) {
+            log.pollFirstEntry();
+        }
+        notifyAll();
+        return e;
+    }
+
+    // ---------- Reading ----------
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    // Events with sequence > after, oldest first, at most max of them.
+    // Fails if some of those events were already dropped; the reader must resync from a snapshot.
+    List<ChangeEvent> readAfter(long after, int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Max must be positive: " + max);
+        }
+        List<ChangeEvent> batch = new ArrayList<>(Math.min(max, 64));
+        for (ChangeEvent e : log.tailMap(after, false).values()) {
+            if (batch.size() >= max) break;
+            batch.add(e);
+        }
+        // checked on what was read: publishers may trim the log while we iterate
+        if (!batch.isEmpty() && batch.get(0).sequence != after + 1) {
+            throw new IllegalStateException("Changes after " + after + " are no longer retained");
+        }
+        return batch;
+    }
+
+    // waits until an event after the given one is published or the timeout passes
+    private synchronized void awaitAfter(long after, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        long left = timeoutMillis;
+        while (lastSequence <= after && left > 0) {
+            wait(left);
+            left = (deadline - System.nanoTime()) / 1_000_000L;
+        }
+    }
+
+    Subscription subscribe(long after, int batchSize, Consumer<List<ChangeEvent>> consumer) {
+        Subscription s = new Subscription(after, batchSize, consumer);
+        s.thread.start();
+        return s;
+    }
+
+    // ---------- Subscriptions ----------
+    // Delivers batches in order on a daemon thread; position() is the last delivered
+    // sequence number, which a restarted consumer passes back to subscribe().
+    final class Subscription implements AutoCloseable {
+        private final int batchSize;
+        private final Consumer<List<ChangeEvent>> consumer;
+        private final Thread thread;
+        private volatile long position;
+        private volatile boolean closed;
+        private volatile RuntimeException failure;
+
+        private Subscription(long after, int batchSize, Consumer<List<ChangeEvent>> consumer) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+            }
+            this.position = after;
+            this.batchSize = batchSize;
+            this.consumer = consumer;
+            this.thread = new Thread(this::run, "change-feed-subscriber");
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            try {
+                while (!closed) {
+                    List<ChangeEvent> batch = readAfter(position, batchSize);
+                    if (batch.isEmpty()) {
+                        awaitAfter(position, 100);
+                        continue;
+                    }
+                    consumer.accept(batch);
+                    position = batch.get(batch.size() - 1).sequence;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        long position() {
+            return position;
+        }
+
+        // the exception that stopped delivery, if any
+        RuntimeException failure() {
+            return failure;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            thread.interrupt();
+        }
+    }
+
+    // ---------- Replica ----------
+    // Minimal follower that keeps a copy of the book by id from delivered batches.
+    static class Replica implements Consumer<List<ChangeEvent>> {
+        private final Map<Long, Contact> contacts = new ConcurrentHashMap<>();
+        private volatile long applied;
+
+        Replica() {
+        }
+
+        // start from an existing snapshot taken at the given sequence number
+        Replica(Collection<? extends Contact> snapshot, long sequence) {
+            for (Contact c : snapshot) {
+                contacts.put(c.getId(), Contact.restore(c.getId(), c.toFields(), c.getTimeCreated(), c.getTimeLastEdit()));
+            }
+            applied = sequence;
+        }
+
+        @Override
+        public void accept(List<ChangeEvent> batch) {
+            for (ChangeEvent e : batch) {
+                if (e.sequence <= applied) continue;
+                apply(e);
+                applied = e.sequence;
+            }
+        }
+
+        private void apply(ChangeEvent e) {
+            switch (e.type) {
+                case ADD:
+                    contacts.put(e.contactId, Contact.restore(e.contactId, e.fields, e.timeCreated, e.time));
+                    break;
+                case EDIT:
+                    Contact old = contacts.get(e.contactId);
+                    if (old != null) {
+                        Map<String, String> fields = old.toFields();
+                        fields.put(e.field, e.newValue);
+                        contacts.put(e.contactId, Contact.restore(e.contactId, fields, old.getTimeCreated(), e.time));
+                    }
+                    break;
+                default:
+                    contacts.remove(e.contactId);
+                    break;
+            }
+        }
+
+        Contact get(long id) {
+            return contacts.get(id);
+        }
+
+        int size() {
+            return contacts.size();
+        }
+
+        long applied() {
+            return applied;
+        }
+    }
+}
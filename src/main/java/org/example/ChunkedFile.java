@@ -0,0 +1,396 @@
+package org.example;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Phone book file that can be encoded and decoded on all cores.
+// Layout: header (magic, version, chunk count), a chunk table (records, length and CRC32 of
+// every chunk), then the chunks, each an independently serialized list of up to CHUNK_SIZE
+// contacts. Since version 2 every chunk is deflated on its own, so the chunk table doubles as
+// a block index: Reader fetches one record or one page by inflating a single chunk.
+// Chunks are read and decoded in parallel and handed over in file order as soon as they and
+// all chunks before them are ready, so the caller indexes one chunk while later ones are
+// still decoding. A damaged chunk is reported and skipped; the rest of the book loads.
+class ChunkedFile {
+    static final int MAGIC = 0x50424B43; // "PBKC"
+    static final int VERSION = 2;        // 1: chunks stored as they are, 2: chunks deflated
+    static final int CHUNK_SIZE = 4096;
+
+    private static final int HEADER_BYTES = 12;
+    private static final int ENTRY_BYTES = 12;
+
+    // called on the loading thread, in chunk order
+    interface Listener {
+        void loaded(int chunk, int chunks, long records, long totalRecords);
+
+        void failed(int chunk, int chunks, int records, Exception cause);
+    }
+
+    // what was skipped; everything else went to the sink
+    static final class Report {
+        final int failedChunks;
+        final long lostRecords; // in damaged chunks
+
+        Report(int failedChunks, long lostRecords) {
+            this.failedChunks = failedChunks;
+            this.lostRecords = lostRecords;
+        }
+    }
+
+    private static final class Entry {
+        final int records;
+        final int length;
+        final int crc; // of the bytes on disk
+        final long offset;
+        final boolean deflated;
+
+        Entry(int records, int length, int crc, long offset, boolean deflated) {
+            this.records = records;
+            this.length = length;
+            this.crc = crc;
+            this.offset = offset;
+            this.deflated = deflated;
+        }
+    }
+
+    private ChunkedFile() {
+    }
+
+    // ---------- Write ----------
+    // Chunks are serialized in parallel, then written out in order to "<file>.tmp", which is
+    // synced and renamed over the file. A crash or a failed save leaves the old book in place,
+    // and readers such as FollowerBook only ever see a whole old or a whole new file.
+    static void write(File f, List<Contact> contacts) throws IOException {
+        int size = contacts.size();
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        List<byte[]> encoded;
+        try {
+            encoded = IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(i -> encode(contacts.subList(i * CHUNK_SIZE, Math.min(size, (i + 1) * CHUNK_SIZE))))
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        File tmp = new File(f.getPath() + ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    byte[] bytes = encoded.get(i);
+                    out.writeInt(Math.min(size, (i + 1) * CHUNK_SIZE) - i * CHUNK_SIZE);
+                    out.writeInt(bytes.length);
+                    out.writeInt(crc(bytes));
+                }
+                for (byte[] bytes : encoded) {
+                    out.write(bytes);
+                }
+                out.flush();
+                file.getFD().sync(); // on disk before it replaces the book
+            }
+            replace(tmp, f);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private static void replace(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // names, "[no data]" and number prefixes repeat a lot; the fastest level already gets most of it
+    private static byte[] encode(List<Contact> chunk) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new DeflaterOutputStream(bytes, deflater, 8192))) {
+            oos.writeObject(new ArrayList<>(chunk));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+
+    // ---------- Read ----------
+    static boolean isChunked(File f) throws IOException {
+        if (f.length() < HEADER_BYTES) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    // Hands every readable chunk to sink, in file order. Fails only if the header or the
+    // chunk table cannot be read; damaged chunks go to the listener (which may be null).
+    static Report read(File f, Consumer<List<Contact>> sink, Listener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            List<Entry> table = readTable(channel);
+            long total = table.stream().mapToLong(e -> e.records).sum();
+
+            List<CompletableFuture<List<Contact>>> pending = table.stream()
+                    .map(e -> CompletableFuture.supplyAsync(() -> decode(channel, e)))
+                    .collect(Collectors.toList());
+
+            int failed = 0;
+            long loaded = 0;
+            long lost = 0;
+            for (int i = 0; i < table.size(); i++) {
+                List<Contact> chunk;
+                try {
+                    chunk = pending.get(i).join();
+                } catch (CompletionException e) {
+                    failed++;
+                    lost += table.get(i).records;
+                    if (listener != null) {
+                        listener.failed(i, table.size(), table.get(i).records, unwrap(e));
+                    }
+                    continue;
+                }
+                sink.accept(chunk);
+                loaded += chunk.size();
+                if (listener != null) {
+                    listener.loaded(i, table.size(), loaded, total);
+                }
+            }
+            return new Report(failed, lost);
+        }
+    }
+
+    // every chunk or nothing, e.g. for readers that retry a file caught half written
+    static List<Contact> readAll(File f) throws IOException {
+        List<Contact> all = new ArrayList<>();
+        Report report = read(f, all::addAll, null);
+        if (report.failedChunks > 0) {
+            throw new StreamCorruptedException(f + ": " + report.failedChunks + " damaged chunks");
+        }
+        return all;
+    }
+
+    private static List<Entry> readTable(FileChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a chunked phone book");
+        }
+        int version = header.getInt();
+        if (version != 1 && version != VERSION) {
+            throw new StreamCorruptedException("Unsupported chunked phone book version " + version);
+        }
+        int chunks = header.getInt();
+        if (chunks < 0 || chunks > (Integer.MAX_VALUE - HEADER_BYTES) / ENTRY_BYTES
+                || HEADER_BYTES + (long) chunks * ENTRY_BYTES > channel.size()) {
+            throw new StreamCorruptedException("Bad chunk count " + chunks);
+        }
+
+        ByteBuffer entries = readFully(channel, HEADER_BYTES, chunks * ENTRY_BYTES);
+        List<Entry> table = new ArrayList<>(chunks);
+        long offset = HEADER_BYTES + (long) chunks * ENTRY_BYTES;
+        for (int i = 0; i < chunks; i++) {
+            int records = entries.getInt();
+            int length = entries.getInt();
+            int crc = entries.getInt();
+            if (records < 0 || length < 0) {
+                throw new StreamCorruptedException("Bad entry for chunk " + i);
+            }
+            table.add(new Entry(records, length, crc, offset, version >= 2));
+            offset += length;
+        }
+        return table;
+    }
+
+    private static List<Contact> decode(FileChannel channel, Entry e) {
+        try {
+            return decodeChunk(channel, e);
+        } catch (IOException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Contact> decodeChunk(FileChannel channel, Entry e) throws IOException {
+        if (e.offset + e.length > channel.size()) {
+            throw new EOFException("file ends inside the chunk");
+        }
+        byte[] bytes = readFully(channel, e.offset, e.length).array();
+        if (crc(bytes) != e.crc) {
+            throw new StreamCorruptedException("checksum mismatch");
+        }
+        InputStream in = new ByteArrayInputStream(bytes);
+        List<Contact> chunk;
+        try (ObjectInputStream ois = new ObjectInputStream(
+                e.deflated ? new BufferedInputStream(new InflaterInputStream(in), 8192) : in)) {
+            chunk = (List<Contact>) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new InvalidObjectException("Not a chunk of contacts: " + ex);
+        }
+        if (chunk.size() != e.records) {
+            throw new StreamCorruptedException(chunk.size() + " records instead of " + e.records);
+        }
+        return chunk;
+    }
+
+    // positional reads, so every chunk can be read from its own thread
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // ---------- Random access ----------
+    // Reads single records or pages without loading the book. The chunk table tells which
+    // chunk holds a record, and only that chunk is read and inflated; the last decoded chunk
+    // is kept, so paging through it decodes it once. Records are fresh copies: changing
+    // them does not change the file.
+    static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final List<Entry> table;
+        private final int[] starts; // index of the first record of every chunk, then the total
+        private int cachedChunk = -1;
+        private List<Contact> cached;
+        private int decoded;
+
+        Reader(File f) throws IOException {
+            channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+            try {
+                table = readTable(channel);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            starts = new int[table.size() + 1];
+            for (int i = 0; i < table.size(); i++) {
+                starts[i + 1] = Math.addExact(starts[i], table.get(i).records);
+            }
+        }
+
+        int size() {
+            return starts[table.size()];
+        }
+
+        int chunkCount() {
+            return table.size();
+        }
+
+        // chunks read and inflated so far
+        synchronized int chunksDecoded() {
+            return decoded;
+        }
+
+        int chunkRecords(int chunk) {
+            return table.get(chunk).records;
+        }
+
+        // length and CRC of the chunk's bytes on disk: chunks with equal keys hold the same
+        // records, so a caller that kept the chunk from an earlier read need not decode it
+        long chunkKey(int chunk) {
+            Entry e = table.get(chunk);
+            return ((long) e.length << 32) | (e.crc & 0xFFFFFFFFL);
+        }
+
+        // a fresh copy of one chunk, bypassing the cache; may be called from several threads
+        List<Contact> readChunk(int chunk) throws IOException {
+            return decodeChunk(channel, table.get(chunk));
+        }
+
+        synchronized Contact get(int index) throws IOException {
+            checkIndex(index);
+            int chunk = chunkOf(index);
+            return chunk(chunk).get(index - starts[chunk]);
+        }
+
+        // up to count records from index from; a page inside one chunk decodes just that chunk
+        synchronized List<Contact> page(int from, int count) throws IOException {
+            if (from == size() && count >= 0) {
+                return new ArrayList<>();
+            }
+            checkIndex(from);
+            if (count < 0) {
+                throw new IllegalArgumentException("Page size must not be negative: " + count);
+            }
+            int to = (int) Math.min(size(), (long) from + count);
+            List<Contact> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; ) {
+                int chunk = chunkOf(i);
+                int end = Math.min(to, starts[chunk + 1]);
+                page.addAll(chunk(chunk).subList(i - starts[chunk], end - starts[chunk]));
+                i = end;
+            }
+            return page;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+        }
+
+        // the last chunk starting at or before index; empty chunks are skipped
+        private int chunkOf(int index) {
+            int lo = 0;
+            int hi = table.size() - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (starts[mid] <= index) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+
+        private List<Contact> chunk(int chunk) throws IOException {
+            if (chunk != cachedChunk) {
+                cached = decodeChunk(channel, table.get(chunk));
+                cachedChunk = chunk;
+                decoded++;
+            }
+            return cached;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static Exception unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+}
@@ -0,0 +1,438 @@
+package org.example;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Column-per-field storage for contacts. Rows are exposed as lightweight Contact views,
+// so the rest of the app keeps using the Contact API while scans walk flat arrays.
+class ColumnarStore extends AbstractList<Contact> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    static final byte PERSON = 0;
+    static final byte ORGANIZATION = 1;
+
+    private static final byte NO_GENDER = 0;
+
+    private int size;
+    private byte[] kinds;
+    private long[] ids;
+    private String[] names;
+    private String[] seconds;   // surname for persons, address for organizations
+    private int[] births;       // epoch days, PersonContact.NO_BIRTH_DAY when unknown
+    private byte[] genders;     // NO_GENDER, 'M' or 'F'
+    private String[] numbers;
+    private long[] created;     // packed, see pack()
+    private long[] lastEdit;
+
+    ColumnarStore() {
+        this(16);
+    }
+
+    ColumnarStore(int capacity) {
+        allocate(Math.max(capacity, 1));
+    }
+
+    static ColumnarStore copyOf(Collection<? extends Contact> contacts) {
+        ColumnarStore store = new ColumnarStore(contacts.size());
+        store.addAll(contacts);
+        return store;
+    }
+
+    // ---------- Timestamps ----------
+    static long pack(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + t.getNano();
+    }
+
+    static LocalDateTime unpack(long packed) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(packed, 1_000_000_000L),
+                (int) Math.floorMod(packed, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    // ---------- List API ----------
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Contact get(int index) {
+        checkIndex(index, size);
+        return new Row(this, index);
+    }
+
+    @Override
+    public Contact set(int index, Contact c) {
+        checkIndex(index, size);
+        Contact old = materialize(index);
+        write(index, c);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Contact c) {
+        checkIndex(index, size + 1);
+        if (size == ids.length) {
+            grow();
+        }
+        shift(index, index + 1, size - index);
+        size++;
+        write(index, c);
+        modCount++;
+    }
+
+    @Override
+    public Contact remove(int index) {
+        checkIndex(index, size);
+        Contact old = materialize(index);
+        shift(index + 1, index, size - index - 1);
+        size--;
+        clear(size);
+        modCount++;
+        return old;
+    }
+
+    // One compaction pass instead of shifting the tail for every removed row.
+    @Override
+    public boolean removeIf(Predicate<? super Contact> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.test(new Row(this, i))) continue;
+            if (kept != i) {
+                shift(i, kept, 1);
+            }
+            kept++;
+        }
+        if (kept == size) return false;
+        for (int i = kept; i < size; i++) {
+            clear(i);
+        }
+        size = kept;
+        modCount++;
+        return true;
+    }
+
+    // ---------- Scans ----------
+    // Same matching as App.doSearchOnce, reading the columns directly instead of through views.
+    List<Integer> search(Pattern pattern) {
+        List<Integer> results = new ArrayList<>();
+        StringBuilder text = new StringBuilder(64);
+        Matcher m = pattern.matcher("");
+        for (int i = 0; i < size; i++) {
+            text.setLength(0);
+            appendSearchText(text, i);
+            if (m.reset(text.toString().toLowerCase(Locale.ROOT)).find()) {
+                results.add(i);
+            }
+        }
+        return results;
+    }
+
+    private void appendSearchText(StringBuilder text, int row) {
+        text.append(names[row]).append(' ').append(seconds[row]).append(' ');
+        if (kinds[row] == PERSON) {
+            text.append(PersonContact.formatBirthDay(births[row])).append(' ')
+                    .append(genderString(genders[row])).append(' ');
+        }
+        text.append(printable(numbers[row]));
+    }
+
+    // ---------- Storage helpers ----------
+    private void allocate(int capacity) {
+        kinds = new byte[capacity];
+        ids = new long[capacity];
+        names = new String[capacity];
+        seconds = new String[capacity];
+        births = new int[capacity];
+        genders = new byte[capacity];
+        numbers = new String[capacity];
+        created = new long[capacity];
+        lastEdit = new long[capacity];
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1) + 1;
+        kinds = Arrays.copyOf(kinds, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        seconds = Arrays.copyOf(seconds, capacity);
+        births = Arrays.copyOf(births, capacity);
+        genders = Arrays.copyOf(genders, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        created = Arrays.copyOf(created, capacity);
+        lastEdit = Arrays.copyOf(lastEdit, capacity);
+    }
+
+    private void shift(int from, int to, int length) {
+        if (length <= 0) return;
+        System.arraycopy(kinds, from, kinds, to, length);
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(names, from, names, to, length);
+        System.arraycopy(seconds, from, seconds, to, length);
+        System.arraycopy(births, from, births, to, length);
+        System.arraycopy(genders, from, genders, to, length);
+        System.arraycopy(numbers, from, numbers, to, length);
+        System.arraycopy(created, from, created, to, length);
+        System.arraycopy(lastEdit, from, lastEdit, to, length);
+    }
+
+    private void clear(int row) {
+        names[row] = null;
+        seconds[row] = null;
+        numbers[row] = null;
+    }
+
+    private void write(int row, Contact c) {
+        ids[row] = c.getId();
+        numbers[row] = c.getNumber();
+        created[row] = pack(c.getTimeCreated());
+        lastEdit[row] = pack(c.getTimeLastEdit());
+        names[row] = c.getFieldValue("name");
+        if ("organization".equals(c.getType())) {
+            kinds[row] = ORGANIZATION;
+            seconds[row] = c.getFieldValue("address");
+            births[row] = PersonContact.NO_BIRTH_DAY;
+            genders[row] = NO_GENDER;
+        } else {
+            kinds[row] = PERSON;
+            seconds[row] = c.getFieldValue("surname");
+            births[row] = c.getBirthDay();
+            genders[row] = genderByte(c.getFieldValue("gender"));
+        }
+    }
+
+    // a plain heap copy of a row, e.g. for serialization
+    Contact materialize(int row) {
+        if (kinds[row] == ORGANIZATION) {
+            return new OrganizationContact(ids[row], names[row], seconds[row], numbers[row],
+                    unpack(created[row]), unpack(lastEdit[row]));
+        }
+        return new PersonContact(ids[row], names[row], seconds[row], births[row],
+                genderString(genders[row]), numbers[row], unpack(created[row]), unpack(lastEdit[row]));
+    }
+
+    // Rows are normally in id order (see App.positionOf), which makes this a binary search;
+    // rows out of order are found by a scan. -1 if the id is not in the store.
+    int indexOfId(long id) {
+        int i = Arrays.binarySearch(ids, 0, size, id);
+        if (i >= 0) {
+            return i;
+        }
+        for (i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int rowOf(long id, int hint) {
+        if (hint < size && ids[hint] == id) {
+            return hint;
+        }
+        int row = indexOfId(id);
+        if (row < 0) {
+            throw new IllegalStateException("Contact " + id + " is no longer in the store");
+        }
+        return row;
+    }
+
+    private static byte genderByte(String gender) {
+        if ("M".equals(gender) || "F".equals(gender)) {
+            return (byte) gender.charAt(0);
+        }
+        return NO_GENDER;
+    }
+
+    private static String genderString(byte gender) {
+        if (gender == 'M') return "M";
+        if (gender == 'F') return "F";
+        return "[no data]";
+    }
+
+    private static String printable(String number) {
+        return (number == null || number.isEmpty()) ? "[no number]" : number;
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+        }
+    }
+
+    // the file format stays a plain list of heap contacts
+    private Object writeReplace() {
+        ArrayList<Contact> copy = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            copy.add(materialize(i));
+        }
+        return copy;
+    }
+
+    // ---------- Row view ----------
+    // Holds only the id and a row hint; every read and write goes to the columns.
+    // If earlier rows were removed, the row is looked up again by id. Rows are never
+    // serialized themselves: writeReplace() stores a detached copy instead.
+    private static final class Row extends Contact {
+        private static final long serialVersionUID = 1L;
+
+        private final ColumnarStore store;
+        private final long rowId;
+        private int row;
+
+        Row(ColumnarStore store, int row) {
+            super(0, "", null, null);
+            this.store = store;
+            this.row = row;
+            this.rowId = store.ids[row];
+        }
+
+        private int row() {
+            row = store.rowOf(rowId, row);
+            return row;
+        }
+
+        byte kind() {
+            return store.kinds[row()];
+        }
+
+        @Override
+        public long getId() {
+            return rowId;
+        }
+
+        @Override
+        boolean isSameRecord(Contact other) {
+            return other instanceof Row && ((Row) other).store == store && other.getId() == rowId;
+        }
+
+        @Override
+        String getType() {
+            return kind() == PERSON ? "person" : "organization";
+        }
+
+        @Override
+        protected void touch() {
+            int r = row();
+            LocalDateTime previous = unpack(store.lastEdit[r]);
+            store.lastEdit[r] = pack(LocalDateTime.now());
+            fireTouched(this, previous);
+        }
+
+        @Override
+        public void setNumber(String number) {
+            store.numbers[row()] = checkedNumber(number);
+            touch();
+        }
+
+        @Override
+        String getNumber() {
+            return store.numbers[row()];
+        }
+
+        @Override
+        public String getNumberPrintable() {
+            return printable(store.numbers[row()]);
+        }
+
+        @Override
+        public LocalDateTime getTimeCreated() {
+            return unpack(store.created[row()]);
+        }
+
+        @Override
+        int getBirthDay() {
+            return store.births[row()];
+        }
+
+        @Override
+        public LocalDateTime getTimeLastEdit() {
+            return unpack(store.lastEdit[row()]);
+        }
+
+        @Override
+        public String getListName() {
+            int r = row();
+            return store.kinds[r] == PERSON ? store.names[r] + " " + store.seconds[r] : store.names[r];
+        }
+
+        @Override
+        public void printInfo() {
+            store.materialize(row()).printInfo();
+        }
+
+        @Override
+        public String[] getEditableFields() {
+            return kind() == PERSON
+                    ? new String[]{"name", "surname", "birth", "gender", "number"}
+                    : new String[]{"name", "address", "number"};
+        }
+
+        @Override
+        public void setField(String field, String v) {
+            int r = row();
+            boolean person = store.kinds[r] == PERSON;
+            switch (field) {
+                case "name":
+                    store.names[r] = (v == null) ? "" : v;
+                    break;
+                case "surname":
+                case "address":
+                    if (person != "surname".equals(field)) return;
+                    store.seconds[r] = (v == null) ? "" : v;
+                    break;
+                case "birth":
+                    if (!person) return;
+                    store.births[r] = PersonContact.checkedBirthDay(v);
+                    break;
+                case "gender":
+                    if (!person) return;
+                    store.genders[r] = genderByte(PersonContact.checkedGender(v));
+                    break;
+                case "number":
+                    setNumber(v);
+                    return;
+                default:
+                    return;
+            }
+            touch();
+        }
+
+        @Override
+        public String getFieldValue(String field) {
+            int r = row();
+            boolean person = store.kinds[r] == PERSON;
+            switch (field) {
+                case "name":
+                    return store.names[r];
+                case "surname":
+                    return person ? store.seconds[r] : "";
+                case "address":
+                    return person ? "" : store.seconds[r];
+                case "birth":
+                    return person ? PersonContact.formatBirthDay(store.births[r]) : "";
+                case "gender":
+                    return person ? genderString(store.genders[r]) : "";
+                case "number":
+                    return printable(store.numbers[r]);
+                default:
+                    return "";
+            }
+        }
+
+        @Override
+        public String getSearchText() {
+            StringBuilder sb = new StringBuilder(64);
+            store.appendSearchText(sb, row());
+            return sb.toString().toLowerCase(Locale.ROOT);
+        }
+
+        private Object writeReplace() {
+            return store.materialize(row());
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.example;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Finds likely duplicate contacts without comparing every pair.
+// Contacts are grouped by blocking keys (normalized number, phonetic name key) and only
+// contacts sharing a block are compared. Big blocks are compared within a sliding window
+// after sorting by name, so the work stays near N * WINDOW. Pairs are scored in parallel.
+class Deduplicator {
+    static final double DEFAULT_THRESHOLD = 0.75;
+    static final double AUTO_MERGE_THRESHOLD = 0.9;
+    // persons whose given names differ score at most this, so a household sharing a number
+    // is offered for review but never merged automatically
+    static final double DIFFERENT_GIVEN_NAME_CAP = 0.85;
+    static final double GIVEN_NAME_AGREEMENT = 0.8;
+    static final int WINDOW = 16;
+
+    static final class Candidate {
+        final Contact first;
+        final Contact second;
+        final double score;
+
+        Candidate(Contact first, Contact second, double score) {
+            this.first = first;
+            this.second = second;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return first.getListName() + " <-> " + second.getListName()
+                    + String.format(Locale.ROOT, " (%.2f)", score);
+        }
+    }
+
+    // the fields scoring looks at, normalized once per contact
+    private static final class Profile {
+        final boolean person;
+        final String number;
+        final String name;
+        final String givenName;
+        final String surname;
+        final String address;
+        final String birth;
+        final String gender;
+
+        Profile(Contact c) {
+            person = isPerson(c);
+            number = normalizeNumber(c.getNumber());
+            name = c.getListName().toLowerCase(Locale.ROOT);
+            givenName = person ? c.getFieldValue("name").toLowerCase(Locale.ROOT) : "";
+            surname = person ? c.getFieldValue("surname").toLowerCase(Locale.ROOT) : "";
+            address = person ? "" : c.getFieldValue("address").toLowerCase(Locale.ROOT);
+            birth = person ? c.getFieldValue("birth") : "";
+            gender = person ? c.getFieldValue("gender") : "";
+        }
+    }
+
+    private Deduplicator() {
+    }
+
+    // ---------- Candidates ----------
+    // Pairs scoring at least threshold, best first.
+    static List<Candidate> findCandidates(List<Contact> contacts, double threshold) {
+        List<Contact> snapshot = new ArrayList<>(contacts);
+        List<Profile> profiles = snapshot.parallelStream().map(Profile::new).collect(Collectors.toList());
+
+        // a pair can share several blocks; keep it once
+        Map<List<Long>, Candidate> found = blocks(snapshot).values().parallelStream()
+                .filter(block -> block.size() > 1)
+                .flatMap(block -> scoreBlock(snapshot, profiles, block, threshold).stream())
+                .collect(Collectors.toMap(
+                        c -> Arrays.asList(c.first.getId(), c.second.getId()), c -> c, (x, y) -> x));
+
+        List<Candidate> result = new ArrayList<>(found.values());
+        result.sort(Comparator.comparingDouble((Candidate c) -> -c.score)
+                .thenComparing(c -> c.first.getId())
+                .thenComparing(c -> c.second.getId()));
+        return result;
+    }
+
+    private static List<Candidate> scoreBlock(List<Contact> contacts, List<Profile> profiles,
+                                              List<Integer> block, double threshold) {
+        block.sort(Comparator.comparing(i -> profiles.get(i).name));
+        List<Candidate> hits = new ArrayList<>();
+        for (int a = 0; a < block.size(); a++) {
+            int end = Math.min(block.size(), a + 1 + WINDOW);
+            for (int b = a + 1; b < end; b++) {
+                int i = Math.min(block.get(a), block.get(b));
+                int j = Math.max(block.get(a), block.get(b));
+                double score = score(profiles.get(i), profiles.get(j));
+                if (score >= threshold) {
+                    hits.add(new Candidate(contacts.get(i), contacts.get(j), score));
+                }
+            }
+        }
+        return hits;
+    }
+
+    // block key -> positions in the list
+    static Map<String, List<Integer>> blocks(List<Contact> contacts) {
+        Map<String, List<Integer>> blocks = new HashMap<>();
+        for (int i = 0; i < contacts.size(); i++) {
+            for (String key : blockingKeys(contacts.get(i))) {
+                blocks.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+        return blocks;
+    }
+
+    static List<String> blockingKeys(Contact c) {
+        List<String> keys = new ArrayList<>(2);
+        boolean person = isPerson(c);
+        String number = normalizeNumber(c.getNumber());
+        if (!number.isEmpty()) {
+            keys.add((person ? "pn:" : "on:") + number);
+        }
+        String phonetic = person
+                ? soundex(c.getFieldValue("name")) + soundex(c.getFieldValue("surname"))
+                : soundex(c.getFieldValue("name"));
+        if (!phonetic.isEmpty()) {
+            keys.add((person ? "pp:" : "op:") + phonetic);
+        }
+        return keys;
+    }
+
+    // ---------- Scoring ----------
+    // 0..1; the same number is the strongest signal, names come next,
+    // and known-but-different birth date or gender count against a match.
+    // A shared number and surname alone are what a household looks like, so persons need
+    // agreeing given names to reach AUTO_MERGE_THRESHOLD.
+    static double score(Contact a, Contact b) {
+        return score(new Profile(a), new Profile(b));
+    }
+
+    private static double score(Profile a, Profile b) {
+        if (a.person != b.person) {
+            return 0;
+        }
+        double number = (!a.number.isEmpty() && a.number.equals(b.number)) ? 1 : 0;
+
+        if (!a.person) {
+            double name = jaroWinkler(a.name, b.name);
+            return 0.5 * number + 0.35 * name + 0.15 * jaroWinkler(a.address, b.address);
+        }
+
+        double givenName = jaroWinkler(a.givenName, b.givenName);
+        double score = 0.5 * number + 0.25 * givenName + 0.25 * jaroWinkler(a.surname, b.surname);
+        score += agreement(a.birth, b.birth, 0.1, 0.25);
+        score += agreement(a.gender, b.gender, 0, 0.25);
+        if (givenName < GIVEN_NAME_AGREEMENT) {
+            score = Math.min(score, DIFFERENT_GIVEN_NAME_CAP);
+        }
+        return Math.max(0, Math.min(1, score));
+    }
+
+    private static double agreement(String x, String y, double same, double conflict) {
+        if (isMissing(x) || isMissing(y)) return 0;
+        return x.equals(y) ? same : -conflict;
+    }
+
+    // ---------- Merging ----------
+    // Fills the gaps in keep from drop; values keep already has win. Returns field -> old value
+    // for every field that changed. The caller removes drop from the book.
+    static Map<String, String> merge(Contact keep, Contact drop) {
+        Map<String, String> changed = new LinkedHashMap<>();
+        Map<String, String> mine = keep.toFields();
+        Map<String, String> theirs = drop.toFields();
+        for (String field : keep.getEditableFields()) {
+            String value = theirs.get(field);
+            if (isMissing(mine.get(field)) && !isMissing(value)) {
+                changed.put(field, mine.get(field));
+                keep.setField(field, value);
+            }
+        }
+        return changed;
+    }
+
+    // the record to keep: the more complete one, then the older one
+    static Contact survivor(Contact a, Contact b) {
+        int filledA = filled(a);
+        int filledB = filled(b);
+        if (filledA != filledB) {
+            return filledA > filledB ? a : b;
+        }
+        return a.getTimeCreated().isAfter(b.getTimeCreated()) ? b : a;
+    }
+
+    private static int filled(Contact c) {
+        int n = 0;
+        for (String value : c.toFields().values()) {
+            if (!isMissing(value)) n++;
+        }
+        return n;
+    }
+
+    // ---------- Keys and similarity ----------
+    static String normalizeNumber(String number) {
+        if (number == null) return "";
+        StringBuilder sb = new StringBuilder(number.length());
+        for (int i = 0; i < number.length(); i++) {
+            char ch = number.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                sb.append(Character.toLowerCase(ch));
+            }
+        }
+        return sb.toString();
+    }
+
+    // American Soundex, e.g. Robert -> R163; "" when there are no letters
+    static String soundex(String s) {
+        if (s == null) return "";
+        final String codes = "01230120022455012623010202"; // a..z
+        StringBuilder sb = new StringBuilder(4);
+        char last = 0;
+        for (int i = 0; i < s.length() && sb.length() < 4; i++) {
+            char ch = Character.toLowerCase(s.charAt(i));
+            if (ch < 'a' || ch > 'z') continue;
+            char code = codes.charAt(ch - 'a');
+            if (sb.length() == 0) {
+                sb.append(Character.toUpperCase(ch));
+                last = code;
+                continue;
+            }
+            if (code != '0' && code != last) {
+                sb.append(code);
+            }
+            if (ch != 'h' && ch != 'w') {
+                last = code;
+            }
+        }
+        if (sb.length() == 0) return "";
+        while (sb.length() < 4) {
+            sb.append('0');
+        }
+        return sb.toString();
+    }
+
+    static double jaroWinkler(String a, String b) {
+        if (a.equals(b)) return 1;
+        if (a.isEmpty() || b.isEmpty()) return 0;
+
+        int range = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        boolean[] matchedA = new boolean[a.length()];
+        boolean[] matchedB = new boolean[b.length()];
+        int matches = 0;
+        for (int i = 0; i < a.length(); i++) {
+            int from = Math.max(0, i - range);
+            int to = Math.min(b.length() - 1, i + range);
+            for (int j = from; j <= to; j++) {
+                if (!matchedB[j] && a.charAt(i) == b.charAt(j)) {
+                    matchedA[i] = true;
+                    matchedB[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) return 0;
+
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < a.length(); i++) {
+            if (!matchedA[i]) continue;
+            while (!matchedB[j]) j++;
+            if (a.charAt(i) != b.charAt(j)) transpositions++;
+            j++;
+        }
+        double m = matches;
+        double jaro = (m / a.length() + m / b.length() + (m - transpositions / 2.0) / m) / 3;
+
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(a.length(), b.length())) && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+
+    private static boolean isPerson(Contact c) {
+        return "person".equals(c.getType());
+    }
+
+    private static boolean isMissing(String value) {
+        return value == null || value.isEmpty() || "[no data]".equals(value) || "[no number]".equals(value);
+    }
+}
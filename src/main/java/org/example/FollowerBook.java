@@ -0,0 +1,443 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Read-only view of a phone book that another process writes.
+// A watcher thread re-reads the data file (or only the changed segments of a sharded
+// book). Chunked files are re-read through their chunk table: chunks whose length and CRC
+// did not change are kept as they are, and only new or changed chunks are decoded and
+// diffed against what was loaded. Only added, edited or removed contacts touch the time
+// and birthday indexes. Each refresh publishes a new immutable list in id order, so readers
+// never wait for a refresh and never see half of one. The list shares the chunk lists of
+// every part instead of copying them; with several segments the parts are merged in one
+// pass, since each is already in id order. Lookups by id are binary searches on it, so no
+// id map is rebuilt either. Chunks that stay damaged are left out and reported through
+// damage().
+class FollowerBook implements AutoCloseable {
+    private static final int READ_ATTEMPTS = 5;
+    private static final long RETRY_MILLIS = 50;
+    private static final long NO_KEY = -1; // chunk that must be decoded again next time
+
+    // The chunks of one file as last read; keys are null for a file written before chunking.
+    // ordered tells which chunks are in id order, so whether the part is can be told per
+    // chunk instead of per contact; writers keep books in id order, other files get sorted.
+    private static final class Part {
+        static final Part EMPTY = new Part(new long[0], Collections.emptyList(), new boolean[0]);
+
+        final long[] keys;
+        final List<List<Contact>> chunks;
+        final boolean[] ordered;
+        final List<Contact> contacts; // all chunks, in file order
+        final boolean sorted;         // contacts are in id order
+
+        Part(long[] keys, List<List<Contact>> chunks, boolean[] ordered) {
+            this.keys = keys;
+            this.chunks = chunks;
+            this.ordered = ordered;
+            this.contacts = new ChunkList(chunks);
+            this.sorted = isSorted(chunks, ordered);
+        }
+
+        private static boolean isSorted(List<List<Contact>> chunks, boolean[] ordered) {
+            long last = Long.MIN_VALUE;
+            for (int i = 0; i < chunks.size(); i++) {
+                List<Contact> chunk = chunks.get(i);
+                if (chunk.isEmpty()) continue;
+                if (!ordered[i] || chunk.get(0).getId() <= last) return false;
+                last = chunk.get(chunk.size() - 1).getId();
+            }
+            return true;
+        }
+    }
+
+    // Read-only concatenation of chunk lists; building one costs O(chunks), not O(contacts).
+    private static final class ChunkList extends AbstractList<Contact> implements RandomAccess {
+        private final List<List<Contact>> chunks;
+        private final int[] starts; // index of the first contact of every chunk, then the total
+
+        ChunkList(List<List<Contact>> chunks) {
+            this.chunks = chunks;
+            this.starts = new int[chunks.size() + 1];
+            for (int i = 0; i < chunks.size(); i++) {
+                starts[i + 1] = starts[i] + chunks.get(i).size();
+            }
+        }
+
+        @Override
+        public int size() {
+            return starts[chunks.size()];
+        }
+
+        @Override
+        public Contact get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            int chunk = Arrays.binarySearch(starts, index);
+            if (chunk < 0) {
+                chunk = -chunk - 2;
+            } else {
+                while (starts[chunk + 1] == index) {
+                    chunk++; // skip empty chunks
+                }
+            }
+            return chunks.get(chunk).get(index - starts[chunk]);
+        }
+    }
+
+    private final File file;
+    private final ShardedStore store;
+    private final TimeIndex timeIndex;  // not a touch listener: nothing here edits contacts
+    private final BirthdayIndex birthdays;
+    private final Map<Integer, Part> parts = new TreeMap<>(); // shard -> chunks, or 0 -> whole file
+    private final Map<Integer, String> damage = new ConcurrentSkipListMap<>();
+    private final AtomicLong chunksDecoded = new AtomicLong();
+
+    private volatile List<Contact> contacts = Collections.emptyList(); // in id order
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private WatchService watchService;
+    private Thread watcher;
+
+    FollowerBook(String fileName, ShardedStore store) {
+        this.file = new File(fileName).getAbsoluteFile();
+        this.store = store;
+        this.timeIndex = new TimeIndex(id -> find(contacts, id));
+        this.birthdays = new BirthdayIndex(id -> find(contacts, id));
+    }
+
+    // ---------- Reads (never block) ----------
+    List<Contact> contacts() {
+        return contacts;
+    }
+
+    Contact get(long id) {
+        return find(contacts, id);
+    }
+
+    // binary search; published lists are always in id order
+    private static Contact find(List<Contact> sorted, long id) {
+        int lo = 0;
+        int hi = sorted.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            Contact c = sorted.get(mid);
+            if (c.getId() == id) return c;
+            if (c.getId() < id) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return null;
+    }
+
+    TimeIndex timeIndex() {
+        return timeIndex;
+    }
+
+    BirthdayIndex birthdays() {
+        return birthdays;
+    }
+
+    long refreshes() {
+        return refreshes.get();
+    }
+
+    // chunks decoded since the follower was created
+    long chunksDecoded() {
+        return chunksDecoded.get();
+    }
+
+    // what could not be read on the last refresh of each part, one line each; null if nothing
+    String damage() {
+        return damage.isEmpty() ? null : String.join(System.lineSeparator(), damage.values());
+    }
+
+    // ---------- Refresh ----------
+    // Re-reads everything; used at startup. Damaged chunks are left out and reported;
+    // parts that cannot be read at all are left as they were.
+    synchronized void refreshAll() {
+        if (store == null) {
+            refreshPart(0, true);
+        } else {
+            for (int shard = 0; shard < store.getShardCount(); shard++) {
+                refreshPart(shard, true);
+            }
+        }
+        publish();
+    }
+
+    // Re-reads one part (shard number, or 0 for an unsharded book) and publishes the result.
+    // Fails without publishing if anything is damaged, e.g. because the writer is half way.
+    synchronized boolean refresh(int part) {
+        return refresh(part, false);
+    }
+
+    private synchronized boolean refresh(int part, boolean acceptDamage) {
+        boolean ok = refreshPart(part, acceptDamage);
+        if (ok) {
+            publish();
+        }
+        return ok;
+    }
+
+    private synchronized boolean refreshPart(int part, boolean acceptDamage) {
+        File f = partFile(part);
+        Part previous = parts.getOrDefault(part, Part.EMPTY);
+        Part fresh;
+        try {
+            fresh = f.exists() ? read(part, f, previous, acceptDamage) : Part.EMPTY;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // probably caught the writer half way; the next change event retries
+            if (acceptDamage) {
+                damage.put(part, "Cannot read " + f.getName() + ": " + e.getMessage());
+            }
+            return false;
+        }
+
+        // contacts of chunks that were not kept as they are: edited, moved or removed
+        Set<List<Contact>> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(fresh.chunks);
+        Map<Long, Contact> old = new HashMap<>();
+        for (List<Contact> chunk : previous.chunks) {
+            if (kept.contains(chunk)) continue;
+            for (Contact c : chunk) {
+                old.put(c.getId(), c);
+            }
+        }
+        Set<List<Contact>> reused = Collections.newSetFromMap(new IdentityHashMap<>());
+        reused.addAll(previous.chunks);
+        for (List<Contact> chunk : fresh.chunks) {
+            if (reused.contains(chunk)) continue;
+            for (ListIterator<Contact> it = chunk.listIterator(); it.hasNext(); ) {
+                Contact c = it.next();
+                Contact before = old.remove(c.getId());
+                if (before != null && before.getTimeLastEdit().equals(c.getTimeLastEdit())) {
+                    it.set(before); // unchanged, only moved to another chunk
+                    continue;
+                }
+                if (before != null) {
+                    timeIndex.remove(before);
+                    birthdays.remove(before);
+                }
+                timeIndex.add(c);
+                birthdays.add(c);
+            }
+        }
+        for (Contact gone : old.values()) {
+            timeIndex.remove(gone);
+            birthdays.remove(gone);
+        }
+        parts.put(part, fresh);
+        return true;
+    }
+
+    private File partFile(int part) {
+        return store != null ? store.segmentFile(part) : file;
+    }
+
+    // decodes what changed since previous; damaged chunks throw unless acceptDamage
+    private Part read(int part, File f, Part previous, boolean acceptDamage)
+            throws IOException, ClassNotFoundException {
+        if (!ChunkedFile.isChunked(f)) {
+            List<Contact> all = App.readContacts(f);
+            chunksDecoded.incrementAndGet();
+            damage.remove(part);
+            return new Part(null, Collections.singletonList(all), new boolean[]{isOrdered(all)});
+        }
+
+        Map<Long, Integer> known = new HashMap<>(); // chunk key -> index in previous
+        if (previous.keys != null) {
+            for (int i = 0; i < previous.keys.length; i++) {
+                known.put(previous.keys[i], i);
+            }
+        }
+        known.remove(NO_KEY);
+
+        try (ChunkedFile.Reader reader = new ChunkedFile.Reader(f)) {
+            int count = reader.chunkCount();
+            long[] keys = new long[count];
+            List<List<Contact>> chunks = new ArrayList<>(Collections.nCopies(count, null));
+            boolean[] ordered = new boolean[count];
+            List<Integer> changed = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                keys[i] = reader.chunkKey(i);
+                Integer was = known.get(keys[i]);
+                if (was != null) {
+                    chunks.set(i, previous.chunks.get(was));
+                    ordered[i] = previous.ordered[was];
+                } else {
+                    changed.add(i);
+                }
+            }
+
+            Map<Integer, Object> decoded = changed.parallelStream().collect(Collectors.toMap(i -> i, i -> {
+                try {
+                    return reader.readChunk(i);
+                } catch (IOException e) {
+                    return e;
+                }
+            }));
+            chunksDecoded.addAndGet(changed.size());
+
+            List<String> failures = new ArrayList<>();
+            int lost = 0;
+            for (int i : changed) {
+                Object result = decoded.get(i);
+                if (result instanceof IOException) {
+                    if (!acceptDamage) {
+                        throw (IOException) result;
+                    }
+                    failures.add((i + 1) + " (" + ((IOException) result).getMessage() + ")");
+                    lost += reader.chunkRecords(i);
+                    keys[i] = NO_KEY;
+                    chunks.set(i, new ArrayList<>());
+                    ordered[i] = true;
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                List<Contact> chunk = (List<Contact>) result;
+                chunks.set(i, chunk);
+                ordered[i] = isOrdered(chunk);
+            }
+            if (failures.isEmpty()) {
+                damage.remove(part);
+            } else {
+                damage.put(part, f.getName() + ": chunk " + String.join(", ", failures) + " of " + count
+                        + " is damaged, " + lost + " records are not shown.");
+            }
+            return new Part(keys, chunks, ordered);
+        }
+    }
+
+    private static boolean isOrdered(List<Contact> chunk) {
+        for (int i = 1; i < chunk.size(); i++) {
+            if (chunk.get(i - 1).getId() >= chunk.get(i).getId()) return false;
+        }
+        return true;
+    }
+
+    // One part in id order is published as it is; segments interleave ids and are merged.
+    // Only files that a writer did not keep in id order are copied and sorted.
+    private synchronized void publish() {
+        List<Part> all = new ArrayList<>(parts.values());
+        if (all.size() == 1 && all.get(0).sorted) {
+            contacts = all.get(0).contacts;
+        } else if (all.stream().allMatch(part -> part.sorted)) {
+            contacts = Collections.unmodifiableList(merge(all));
+        } else {
+            List<Contact> copy = new ArrayList<>();
+            for (Part part : all) {
+                copy.addAll(part.contacts);
+            }
+            copy.sort(Comparator.comparingLong(Contact::getId));
+            contacts = Collections.unmodifiableList(copy);
+        }
+        refreshes.incrementAndGet();
+    }
+
+    // k-way merge of parts that are each in id order
+    private static List<Contact> merge(List<Part> sorted) {
+        int total = 0;
+        for (Part part : sorted) {
+            total += part.contacts.size();
+        }
+        List<Contact> merged = new ArrayList<>(total);
+        // {part, position} of the smallest contact not merged yet of every part
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                Comparator.comparingLong((int[] h) -> sorted.get(h[0]).contacts.get(h[1]).getId()));
+        for (int i = 0; i < sorted.size(); i++) {
+            if (!sorted.get(i).contacts.isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Contact> part = sorted.get(head[0]).contacts;
+            merged.add(part.get(head[1]));
+            if (++head[1] < part.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    // ---------- Watching ----------
+    void start() throws IOException {
+        File dir = file.getParentFile();
+        watchService = FileSystems.getDefault().newWatchService();
+        dir.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = new Thread(this::watch, "follower-" + file.getName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Set<Integer> changed = new TreeSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context == null) {
+                        // overflow: we lost track, read everything again
+                        changed.add(-1);
+                        continue;
+                    }
+                    int part = partOf(context.toString());
+                    if (part >= 0) {
+                        changed.add(part);
+                    }
+                }
+                key.reset();
+                for (int part : changed) {
+                    refreshWithRetry(part);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int partOf(String name) {
+        if (store != null) {
+            return store.segmentOf(name);
+        }
+        return file.getName().equals(name) ? 0 : -1;
+    }
+
+    private void refreshWithRetry(int part) throws InterruptedException {
+        if (part < 0) {
+            refreshAll();
+            return;
+        }
+        // the last attempt takes what it can read and reports the rest
+        for (int attempt = 1; attempt <= READ_ATTEMPTS; attempt++) {
+            if (refresh(part, attempt == READ_ATTEMPTS)) {
+                return;
+            }
+            Thread.sleep(RETRY_MILLIS);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.example;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Splits one phone book over N segment files ("<file>.seg0" .. "<file>.segN-1").
+// A contact always lives in the segment picked by its id, so edits never move it.
+final class ShardedStore {
+    private final String fileName;
+    private final int shardCount;
+    private final BitSet dirty = new BitSet();
+    private final List<File> staleSegments = new ArrayList<>();
+    private final BitSet unreadable = new BitSet(); // held back: save() never overwrites them
+    private final Map<File, String> loadFailures = new LinkedHashMap<>();
+
+    ShardedStore(String fileName, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.fileName = fileName;
+        this.shardCount = shardCount;
+    }
+
+    int getShardCount() {
+        return shardCount;
+    }
+
+    int shardOf(Contact c) {
+        return Math.floorMod(Long.hashCode(c.getId()), shardCount);
+    }
+
+    File segmentFile(int shard) {
+        return new File(fileName + ".seg" + shard);
+    }
+
+    // ---------- Dirty tracking ----------
+    synchronized void markDirty(Contact c) {
+        dirty.set(shardOf(c));
+    }
+
+    synchronized boolean isDirty(int shard) {
+        return dirty.get(shard);
+    }
+
+    // files the last load could not read, with the reason; their records are left out
+    synchronized Map<File, String> loadFailures() {
+        return new LinkedHashMap<>(loadFailures);
+    }
+
+    // ---------- Load ----------
+    // Reads every segment in parallel and returns the contacts in id order, which is the order
+    // they were added in. Segments left over from another shard count are folded in and
+    // rewritten on the next save. A book with no segments yet is read from its single file.
+    // A segment that cannot be read is reported through loadFailures() and held back: save()
+    // leaves it on disk as it is, so the records in it are not lost.
+    List<Contact> load() {
+        SortedSet<Integer> existing = existingSegments();
+        if (existing.isEmpty()) {
+            return migrate();
+        }
+
+        Map<Integer, List<Contact>> segments = new ConcurrentHashMap<>();
+        Map<Integer, String> failures = new ConcurrentHashMap<>();
+        existing.parallelStream().forEach(shard -> {
+            try {
+                segments.put(shard, readSegmentStrict(shard));
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                failures.put(shard, String.valueOf(e.getMessage()));
+            }
+        });
+
+        List<Contact> all = new ArrayList<>();
+        synchronized (this) {
+            resetLoadState();
+            for (int i : existing) {
+                List<Contact> segment = segments.get(i);
+                if (segment == null) {
+                    unreadable.set(i);
+                    loadFailures.put(segmentFile(i), failures.get(i));
+                    continue;
+                }
+                for (Contact c : segment) {
+                    if (shardOf(c) != i) {
+                        // written with a different shard count
+                        dirty.set(shardOf(c));
+                        if (i < shardCount) {
+                            dirty.set(i);
+                        }
+                    }
+                    all.add(c);
+                }
+                if (i >= shardCount) {
+                    staleSegments.add(segmentFile(i));
+                }
+            }
+        }
+        all.sort(Comparator.comparingLong(Contact::getId));
+        return all;
+    }
+
+    private void resetLoadState() {
+        dirty.clear();
+        staleSegments.clear();
+        unreadable.clear();
+        loadFailures.clear();
+    }
+
+    // every segment file of this book on disk, whatever shard count wrote it
+    private SortedSet<Integer> existingSegments() {
+        SortedSet<Integer> shards = new TreeSet<>();
+        String[] names = new File(fileName).getAbsoluteFile().getParentFile().list();
+        if (names != null) {
+            for (String name : names) {
+                int shard = segmentNumber(name);
+                if (shard >= 0) {
+                    shards.add(shard);
+                }
+            }
+        }
+        return shards;
+    }
+
+    // The book was kept in one file so far: split it on the next save. The file itself stays
+    // as it is; once segments exist it is no longer read. If it cannot be read, no segment is
+    // written, so the next load tries the file again.
+    private List<Contact> migrate() {
+        File f = new File(fileName);
+        List<Contact> all = new ArrayList<>();
+        String failure = null;
+        if (f.exists()) {
+            try {
+                all = App.readContacts(f);
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                failure = String.valueOf(e.getMessage());
+            }
+        }
+        synchronized (this) {
+            resetLoadState();
+            if (failure != null) {
+                unreadable.set(0, shardCount);
+                loadFailures.put(f, failure);
+            } else if (!all.isEmpty()) {
+                dirty.set(0, shardCount);
+            }
+        }
+        return all;
+    }
+
+    // reports damaged or half-written segments to the caller
+    List<Contact> readSegmentStrict(int shard) throws IOException, ClassNotFoundException {
+        File f = segmentFile(shard);
+        if (!f.exists()) {
+            return new ArrayList<>();
+        }
+        return App.readContacts(f);
+    }
+
+    // the shard a segment file name belongs to, or -1 if it is not one of ours
+    int segmentOf(String name) {
+        int shard = segmentNumber(name);
+        return shard < shardCount ? shard : -1;
+    }
+
+    // like segmentOf, but also for segments beyond the current shard count
+    private int segmentNumber(String name) {
+        String prefix = new File(fileName).getName() + ".seg";
+        if (!name.startsWith(prefix)) {
+            return -1;
+        }
+        String n = name.substring(prefix.length());
+        if (n.isEmpty() || n.length() > 9 || !n.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Integer.parseInt(n);
+    }
+
+    // ---------- Save ----------
+    // Writes only the segments touched since the last save, in parallel. Segments that
+    // failed to load stay dirty and are not written.
+    void save(List<Contact> contacts) {
+        BitSet toWrite;
+        List<File> toDelete;
+        synchronized (this) {
+            toWrite = (BitSet) dirty.clone();
+            toWrite.andNot(unreadable);
+            if (toWrite.isEmpty() && staleSegments.isEmpty()) return;
+            toDelete = new ArrayList<>(staleSegments);
+            dirty.and(unreadable);
+            staleSegments.clear();
+        }
+
+        Map<Integer, ArrayList<Contact>> groups = new HashMap<>();
+        toWrite.stream().forEach(shard -> groups.put(shard, new ArrayList<>()));
+        for (Contact c : contacts) {
+            ArrayList<Contact> group = groups.get(shardOf(c));
+            if (group != null) {
+                group.add(c);
+            }
+        }
+
+        groups.entrySet().parallelStream().forEach(e -> writeSegment(e.getKey(), e.getValue()));
+        for (File f : toDelete) {
+            if (!f.delete()) {
+                synchronized (this) {
+                    staleSegments.add(f);
+                }
+            }
+        }
+    }
+
+    void saveAll(List<Contact> contacts) {
+        synchronized (this) {
+            dirty.set(0, shardCount);
+        }
+        save(contacts);
+    }
+
+    // segments use the chunked layout too, so a follower decodes only their changed chunks
+    private void writeSegment(int shard, ArrayList<Contact> segment) {
+        try {
+            ChunkedFile.write(segmentFile(shard), segment);
+        } catch (IOException e) {
+            // keep it dirty so the next save retries
+            synchronized (this) {
+                dirty.set(shard);
+            }
+        }
+    }
+
+    // ---------- Search ----------
+    // Fans the scan out over shardCount slices of the list and merges the hits in order.
+    List<Integer> search(List<Contact> contacts, Pattern pattern) {
+        int size = contacts.size();
+        int slice = Math.max(1, (size + shardCount - 1) / shardCount);
+        return IntStream.range(0, shardCount)
+                .parallel()
+                .mapToObj(s -> {
+                    List<Integer> hits = new ArrayList<>();
+                    int end = Math.min(size, (s + 1) * slice);
+                    for (int i = s * slice; i < end; i++) {
+                        if (pattern.matcher(contacts.get(i).getSearchText()).find()) {
+                            hits.add(i);
+                        }
+                    }
+                    return hits;
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,128 @@
+package org.example;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+// Sorted indexes over Contact.timeCreated and Contact.timeLastEdit.
+// Range queries cost O(log N + k) and stream contacts in time order (ties by id).
+// The last-edit index follows Contact.touch() through the TouchListener hook.
+// Entries are only (time, id) pairs; queries look the contacts up through the resolver,
+// so the index holds no Contact (or columnar row view) of its own.
+class TimeIndex implements Contact.TouchListener {
+    private final LongFunction<Contact> resolver;
+    private final ConcurrentSkipListSet<Key> byCreated = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<Key> byLastEdit = new ConcurrentSkipListSet<>();
+
+    static final class Key implements Comparable<Key> {
+        final long time; // nanoseconds since the epoch, see nanos()
+        final long id;
+
+        Key(long time, long id) {
+            this.time = time;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int byTime = Long.compare(time, o.time);
+            return byTime != 0 ? byTime : Long.compare(id, o.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && compareTo((Key) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(time) * 31 + Long.hashCode(id);
+        }
+    }
+
+    // resolver: id -> the contact in the book, or null if it is gone
+    TimeIndex(LongFunction<Contact> resolver) {
+        this.resolver = resolver;
+    }
+
+    // like ColumnarStore.pack, but saturated so LocalDateTime.MIN and MAX work as bounds
+    static long nanos(LocalDateTime t) {
+        long seconds = t.toEpochSecond(ZoneOffset.UTC);
+        try {
+            return Math.addExact(Math.multiplyExact(seconds, 1_000_000_000L), t.getNano());
+        } catch (ArithmeticException e) {
+            return seconds < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    // ---------- Maintenance ----------
+    void add(Contact c) {
+        byCreated.add(new Key(nanos(c.getTimeCreated()), c.getId()));
+        byLastEdit.add(new Key(nanos(c.getTimeLastEdit()), c.getId()));
+    }
+
+    void remove(Contact c) {
+        byCreated.remove(new Key(nanos(c.getTimeCreated()), c.getId()));
+        byLastEdit.remove(new Key(nanos(c.getTimeLastEdit()), c.getId()));
+    }
+
+    void rebuild(Collection<? extends Contact> contacts) {
+        byCreated.clear();
+        byLastEdit.clear();
+        for (Contact c : contacts) {
+            add(c);
+        }
+    }
+
+    int size() {
+        return byCreated.size();
+    }
+
+    @Override
+    public void touched(Contact c, LocalDateTime previousEdit) {
+        // contacts that are not indexed (e.g. still being constructed) are ignored
+        if (previousEdit == null) return;
+        Key previous = new Key(nanos(previousEdit), c.getId());
+        if (!byLastEdit.contains(previous)) return;
+        // listeners are global: a contact of another book may have the same id
+        Contact indexed = resolver.apply(c.getId());
+        if (indexed == null || !indexed.isSameRecord(c)) return;
+        byLastEdit.remove(previous);
+        byLastEdit.add(new Key(nanos(c.getTimeLastEdit()), c.getId()));
+    }
+
+    // ---------- Queries ----------
+    // from is inclusive, to is exclusive
+    Stream<Contact> editedBetween(LocalDateTime from, LocalDateTime to) {
+        return range(byLastEdit, from, to);
+    }
+
+    Stream<Contact> editedSince(LocalDateTime from) {
+        return resolve(byLastEdit.tailSet(new Key(nanos(from), Long.MIN_VALUE), true));
+    }
+
+    Stream<Contact> createdBetween(LocalDateTime from, LocalDateTime to) {
+        return range(byCreated, from, to);
+    }
+
+    Stream<Contact> createdSince(LocalDateTime from) {
+        return resolve(byCreated.tailSet(new Key(nanos(from), Long.MIN_VALUE), true));
+    }
+
+    private Stream<Contact> range(NavigableSet<Key> index, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return Stream.empty();
+        }
+        return resolve(index.subSet(new Key(nanos(from), Long.MIN_VALUE), true,
+                new Key(nanos(to), Long.MIN_VALUE), false));
+    }
+
+    private Stream<Contact> resolve(Collection<Key> keys) {
+        return keys.stream().map(k -> resolver.apply(k.id)).filter(Objects::nonNull);
+    }
+}
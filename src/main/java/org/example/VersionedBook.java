@@ -0,0 +1,307 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Multi-version copy of the phone book for readers that must not see edits in progress.
+// Every write publishes a new immutable version; versions share all untouched nodes of a
+// persistent treap keyed by contact id, so a write copies O(log N) nodes. A reader pins
+// the version that is current when it starts and keeps reading it no matter what writers
+// do. Nothing needs to be freed: a version nobody references is collected by the GC.
+// App keeps one in App.versions: saves, searches and the list read a pinned version, while
+// edits go to the mutable contacts and are published here through App's record* hooks.
+class VersionedBook {
+
+    // ---------- Immutable contact version ----------
+    static final class ContactVersion {
+        final long id;
+        final Map<String, String> fields;
+        final LocalDateTime timeCreated;
+        final LocalDateTime timeLastEdit;
+
+        private ContactVersion(Contact c) {
+            this.id = c.getId();
+            this.fields = Collections.unmodifiableMap(c.toFields());
+            this.timeCreated = c.getTimeCreated();
+            this.timeLastEdit = c.getTimeLastEdit();
+        }
+
+        static ContactVersion of(Contact c) {
+            return new ContactVersion(c);
+        }
+
+        String getType() {
+            return fields.get("type");
+        }
+
+        String getListName() {
+            return "person".equals(getType()) ? fields.get("name") + " " + fields.get("surname") : fields.get("name");
+        }
+
+        // a fresh mutable copy; changing it does not affect any version
+        Contact toContact() {
+            return Contact.restore(id, fields, timeCreated, timeLastEdit);
+        }
+
+        // same text as Contact.getSearchText(), built from the fields without a Contact
+        String getSearchText() {
+            String number = fields.get("number");
+            String printable = (number == null || number.isEmpty()) ? "[no number]" : number;
+            String text = "person".equals(getType())
+                    ? fields.get("name") + " " + fields.get("surname") + " " + fields.get("birth") + " "
+                            + fields.get("gender") + " " + printable
+                    : fields.get("name") + " " + fields.get("address") + " " + printable;
+            return text.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // ---------- Persistent treap ----------
+    private static final class Node {
+        final long key;
+        final int priority;
+        final ContactVersion value;
+        final Node left;
+        final Node right;
+        final int size;
+
+        Node(long key, int priority, ContactVersion value, Node left, Node right) {
+            this.key = key;
+            this.priority = priority;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+
+        Node with(Node left, Node right) {
+            return new Node(key, priority, value, left, right);
+        }
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static int priority(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) h;
+    }
+
+    private static Node insert(Node n, ContactVersion v) {
+        if (n == null) {
+            return new Node(v.id, priority(v.id), v, null, null);
+        }
+        if (v.id == n.key) {
+            return new Node(n.key, n.priority, v, n.left, n.right);
+        }
+        if (v.id < n.key) {
+            Node l = insert(n.left, v);
+            return l.priority > n.priority ? l.with(l.left, n.with(l.right, n.right)) : n.with(l, n.right);
+        }
+        Node r = insert(n.right, v);
+        return r.priority > n.priority ? r.with(n.with(n.left, r.left), r.right) : n.with(n.left, r);
+    }
+
+    private static Node delete(Node n, long key) {
+        if (n == null) return null;
+        if (key < n.key) {
+            Node l = delete(n.left, key);
+            return l == n.left ? n : n.with(l, n.right);
+        }
+        if (key > n.key) {
+            Node r = delete(n.right, key);
+            return r == n.right ? n : n.with(n.left, r);
+        }
+        return join(n.left, n.right);
+    }
+
+    // every key in a is smaller than every key in b
+    private static Node join(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.priority > b.priority ? a.with(a.left, join(a.right, b)) : b.with(join(a, b.left), b.right);
+    }
+
+    // builds a treap from versions sorted by id
+    private static Node build(List<ContactVersion> sorted, int from, int to) {
+        if (from >= to) return null;
+        int top = from;
+        for (int i = from + 1; i < to; i++) {
+            if (priority(sorted.get(i).id) > priority(sorted.get(top).id)) {
+                top = i;
+            }
+        }
+        ContactVersion v = sorted.get(top);
+        return new Node(v.id, priority(v.id), v, build(sorted, from, top), build(sorted, top + 1, to));
+    }
+
+    // ---------- Snapshots ----------
+    // A pinned, unchanging version of the whole book. Close it when done reading.
+    final class Snapshot implements AutoCloseable {
+        final long version;
+        private final Node root;
+        private boolean closed;
+
+        private Snapshot(long version, Node root) {
+            this.version = version;
+            this.root = root;
+        }
+
+        int size() {
+            return VersionedBook.size(root);
+        }
+
+        ContactVersion get(long id) {
+            Node n = root;
+            while (n != null) {
+                if (id == n.key) return n.value;
+                n = id < n.key ? n.left : n.right;
+            }
+            return null;
+        }
+
+        // versions in id order
+        Stream<ContactVersion> stream() {
+            Iterator<ContactVersion> it = new Iterator<ContactVersion>() {
+                private final Deque<Node> stack = new ArrayDeque<>();
+                private Node next = root;
+
+                @Override
+                public boolean hasNext() {
+                    return next != null || !stack.isEmpty();
+                }
+
+                @Override
+                public ContactVersion next() {
+                    while (next != null) {
+                        stack.push(next);
+                        next = next.left;
+                    }
+                    if (stack.isEmpty()) throw new NoSuchElementException();
+                    Node n = stack.pop();
+                    next = n.right;
+                    return n.value;
+                }
+            };
+            return StreamSupport.stream(Spliterators.spliterator(it, size(),
+                    Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+        }
+
+        List<ContactVersion> search(Pattern pattern) {
+            return stream().filter(v -> pattern.matcher(v.getSearchText()).find()).collect(Collectors.toList());
+        }
+
+        // This version as contacts in id order. Each get() returns a fresh mutable copy, so a
+        // writer working through it holds only the chunk it is encoding, not a second book.
+        List<Contact> toContacts() {
+            ContactVersion[] versions = stream().toArray(ContactVersion[]::new);
+            return new AbstractList<Contact>() {
+                @Override
+                public Contact get(int index) {
+                    return versions[index].toContact();
+                }
+
+                @Override
+                public int size() {
+                    return versions.length;
+                }
+            };
+        }
+
+        // writes this version in the regular file format, e.g. for a save or export
+        // that runs while the book keeps changing
+        void writeTo(File file) throws IOException {
+            App.writeContacts(file, toContacts());
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            unpin(version);
+        }
+    }
+
+    private volatile Snapshot current = new Snapshot(0, null);
+    private final Map<Long, Integer> pins = new ConcurrentHashMap<>(); // version -> readers
+
+    // ---------- Readers ----------
+    Snapshot pin() {
+        Snapshot s = current;
+        pins.merge(s.version, 1, Integer::sum);
+        return new Snapshot(s.version, s.root);
+    }
+
+    private void unpin(long version) {
+        pins.computeIfPresent(version, (v, count) -> count == 1 ? null : count - 1);
+    }
+
+    long currentVersion() {
+        return current.version;
+    }
+
+    // oldest version some reader still holds, or -1 if none
+    long oldestPinnedVersion() {
+        return pins.keySet().stream().mapToLong(Long::longValue).min().orElse(-1);
+    }
+
+    int activePins() {
+        return pins.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // ---------- Writers ----------
+    void put(Contact c) {
+        putAll(Collections.singletonList(c));
+    }
+
+    void remove(long id) {
+        removeAll(Collections.singletonList(id));
+    }
+
+    // all of them become visible together, as one version
+    synchronized void putAll(Collection<? extends Contact> contacts) {
+        if (contacts.isEmpty()) return;
+        Node root = current.root;
+        for (Contact c : contacts) {
+            root = insert(root, ContactVersion.of(c));
+        }
+        current = new Snapshot(current.version + 1, root);
+    }
+
+    synchronized void removeAll(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        Node root = current.root;
+        for (long id : ids) {
+            root = delete(root, id);
+        }
+        current = new Snapshot(current.version + 1, root);
+    }
+
+    synchronized void reset(Collection<? extends Contact> contacts) {
+        List<ContactVersion> sorted = new ArrayList<>(contacts.size());
+        for (Contact c : contacts) {
+            sorted.add(ContactVersion.of(c));
+        }
+        sorted.sort(Comparator.comparingLong(v -> v.id));
+        // duplicate ids: the last one wins, like put()
+        List<ContactVersion> unique = new ArrayList<>(sorted.size());
+        for (ContactVersion v : sorted) {
+            if (!unique.isEmpty() && unique.get(unique.size() - 1).id == v.id) {
+                unique.set(unique.size() - 1, v);
+            } else {
+                unique.add(v);
+            }
+        }
+        current = new Snapshot(current.version + 1, build(unique, 0, unique.size()));
+    }
+}
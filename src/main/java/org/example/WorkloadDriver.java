@@ -0,0 +1,252 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+
+// Replays mixed search/add/edit/delete traffic against the book in App and reports throughput
+// and latency percentiles per operation, e.g. for capacity planning on generated books.
+// Traffic is open loop: operation i is due at start + i / rate and its latency counts from
+// then, so a slow operation also shows in the ones queued behind it. With rate 0 operations
+// run back to back and latency is plain service time. Runs on the calling thread, like the
+// menu does; saves are not part of the traffic.
+class WorkloadDriver {
+
+    enum Operation { SEARCH, ADD, EDIT, DELETE }
+
+    // relative weights of the operations
+    static final class Mix {
+        private final int[] weights;
+        private final int total;
+
+        Mix(int search, int add, int edit, int delete) {
+            weights = new int[]{search, add, edit, delete};
+            int sum = 0;
+            for (int w : weights) {
+                if (w < 0) {
+                    throw new IllegalArgumentException("Weights must not be negative: " + Arrays.toString(weights));
+                }
+                sum += w;
+            }
+            if (sum == 0) {
+                throw new IllegalArgumentException("At least one weight must be positive");
+            }
+            total = sum;
+        }
+
+        Operation pick(Random random) {
+            int r = random.nextInt(total);
+            for (int i = 0; i < weights.length; i++) {
+                r -= weights[i];
+                if (r < 0) {
+                    return Operation.values()[i];
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    // recorded latencies in nanoseconds
+    static final class Latencies {
+        private long[] nanos = new long[256];
+        private int count;
+        private boolean sorted = true;
+
+        void record(long latency) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = latency;
+            sorted = false;
+        }
+
+        int count() {
+            return count;
+        }
+
+        // nearest rank; 0 when nothing was recorded
+        long percentile(double p) {
+            if (count == 0) return 0;
+            if (!sorted) {
+                Arrays.sort(nanos, 0, count);
+                sorted = true;
+            }
+            // the epsilon keeps e.g. 99.9% of 1000 at rank 999 despite rounding
+            int rank = (int) Math.ceil(p / 100 * count - 1e-9);
+            return nanos[Math.min(count, Math.max(rank, 1)) - 1];
+        }
+    }
+
+    static final class Report {
+        private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+        final int targetRate;
+        final long elapsedNanos;
+        final Map<Operation, Latencies> latencies;
+        final Latencies all;
+
+        private Report(int targetRate, long elapsedNanos, Map<Operation, Latencies> latencies, Latencies all) {
+            this.targetRate = targetRate;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+            this.all = all;
+        }
+
+        int operations() {
+            return all.count();
+        }
+
+        double throughput() {
+            return elapsedNanos == 0 ? 0 : all.count() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "%d operations in %.2f s: %.0f ops/s (target %s)%n",
+                    operations(), elapsedNanos / 1e9, throughput(),
+                    targetRate == 0 ? "unlimited" : targetRate + " ops/s"));
+            sb.append(String.format(Locale.ROOT, "%-9s%9s%11s%11s%11s%11s%11s%n",
+                    "operation", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+            for (Map.Entry<Operation, Latencies> e : latencies.entrySet()) {
+                appendRow(sb, e.getKey().name().toLowerCase(Locale.ROOT), e.getValue());
+            }
+            appendRow(sb, "all", all);
+            return sb.toString();
+        }
+
+        private static void appendRow(StringBuilder sb, String name, Latencies l) {
+            sb.append(String.format(Locale.ROOT, "%-9s%9d", name, l.count()));
+            for (double p : PERCENTILES) {
+                sb.append(String.format(Locale.ROOT, "%11.3f", l.percentile(p) / 1e6));
+            }
+            sb.append(System.lineSeparator());
+        }
+    }
+
+    private final BookGenerator generator;
+    private final Random random;
+
+    WorkloadDriver(BookGenerator generator, long seed) {
+        this.generator = generator;
+        this.random = new Random(seed);
+    }
+
+    // ---------- Traffic ----------
+    // rate: operations per second, 0 for as fast as possible
+    Report run(int operations, int rate, Mix mix) {
+        if (operations < 0 || rate < 0) {
+            throw new IllegalArgumentException("Operations and rate must not be negative");
+        }
+        Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new Latencies());
+        }
+        Latencies all = new Latencies();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            long due = rate == 0 ? System.nanoTime() : start + i * 1_000_000_000L / rate;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation op = perform(mix.pick(random));
+            long latency = System.nanoTime() - due;
+            latencies.get(op).record(latency);
+            all.record(latency);
+        }
+        return new Report(rate, System.nanoTime() - start, latencies, all);
+    }
+
+    // edits and deletes on an empty book become adds; returns what was done
+    private Operation perform(Operation op) {
+        List<Contact> contacts = App.contacts;
+        if (contacts.isEmpty() && (op == Operation.EDIT || op == Operation.DELETE)) {
+            op = Operation.ADD;
+        }
+        switch (op) {
+            case SEARCH:
+                App.searchIndexes(App.compileQuery(generator.query()));
+                break;
+            case ADD:
+                Contact added = generator.next();
+                contacts.add(added);
+                App.recordAdded(added);
+                break;
+            case EDIT:
+                Contact c = contacts.get(random.nextInt(contacts.size()));
+                String[] fields = c.getEditableFields();
+                String field = fields[random.nextInt(fields.length)];
+                String before = c.toFields().get(field);
+                c.setField(field, generator.value(field));
+                App.recordEdited(c, field, before);
+                break;
+            default:
+                int index = random.nextInt(contacts.size());
+                App.recordRemoved(contacts.get(index));
+                contacts.remove(index);
+                break;
+        }
+        return op;
+    }
+
+    // ---------- Command line ----------
+    // --size=N --seed=S --ops=N --rate=R --mix=search,add,edit,delete --persons=0..1 --out=FILE
+    public static void main(String[] args) throws IOException {
+        int size = 100_000;
+        long seed = 1;
+        int operations = 100_000;
+        int rate = 0;
+        Mix mix = new Mix(70, 10, 15, 5);
+        double persons = 0.7;
+        String out = null;
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--size=")) {
+                    size = Integer.parseInt(value);
+                } else if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(value);
+                } else if (arg.startsWith("--ops=")) {
+                    operations = Integer.parseInt(value);
+                } else if (arg.startsWith("--rate=")) {
+                    rate = Integer.parseInt(value);
+                } else if (arg.startsWith("--persons=")) {
+                    persons = Double.parseDouble(value);
+                } else if (arg.startsWith("--out=")) {
+                    out = value;
+                } else if (arg.startsWith("--mix=")) {
+                    String[] w = value.split(",");
+                    if (w.length != 4) {
+                        throw new IllegalArgumentException("--mix needs four weights");
+                    }
+                    mix = new Mix(Integer.parseInt(w[0].trim()), Integer.parseInt(w[1].trim()),
+                            Integer.parseInt(w[2].trim()), Integer.parseInt(w[3].trim()));
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (size < 0) {
+                throw new IllegalArgumentException("--size must not be negative");
+            }
+            BookGenerator generator = new BookGenerator(seed, persons, BookGenerator.NumberFormat.values());
+
+            App.contacts = generator.generate(size);
+            App.rebuildIndexes();
+            System.out.println("Generated " + size + " contacts (seed " + seed + ")");
+            if (out != null) {
+                App.writeContacts(new File(out), App.contacts);
+                System.out.println("Wrote them to " + out);
+            }
+            if (operations > 0) {
+                System.out.print(new WorkloadDriver(generator, seed).run(operations, rate, mix));
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: WorkloadDriver [--size=N] [--seed=S] [--ops=N] [--rate=R]"
+                    + " [--mix=search,add,edit,delete] [--persons=0..1] [--out=FILE]");
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.*;
 import java.lang.reflect.Method;
 import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,7 +26,12 @@ class AppTest {
         originalIn = System.in;
 
         App.contacts = new ArrayList<>();
+        App.rebuildIndexes();
         App.fileName = null;
+        App.store = null;
+        App.columnar = false;
+        App.followMode = false;
+        App.follower = null;
 
         setAppScannerWithInput("");
     }
@@ -154,6 +161,7 @@ class AppTest {
     void save_whenFileNameNull_returnsImmediately() {
         App.fileName = null;
         App.contacts.add(new PersonContact("A", "B", "2000-01-01", "M", "123"));
+        App.rebuildIndexes();
         assertDoesNotThrow(App::save);
     }
 
@@ -177,6 +185,7 @@ class AppTest {
 
         App.contacts.add(new PersonContact("John", "Smith", "1999-12-31", "M", "123"));
         App.contacts.add(new OrganizationContact("Org", "Addr", "999"));
+        App.rebuildIndexes();
 
         App.save();
         App.contacts = new ArrayList<>();
@@ -201,6 +210,128 @@ class AppTest {
         assertEquals(0, App.contacts.size());
     }
 
+    @Test
+    void shardsOption_savesAndLoadsThroughSegments() {
+        App.fileName = tempDir.resolve("sharded.db").toString();
+        App.parseOptions(new String[]{"--shards=0", "--other"});
+        assertNull(App.store);
+        App.parseOptions(new String[]{"--shards=99999999999", "--shards=9999999999"});
+        assertNull(App.store);
+        App.parseOptions(new String[]{"--shards=3"});
+        assertNotNull(App.store);
+        assertEquals(3, App.store.getShardCount());
+
+        Contact c = new PersonContact("John", "Smith", "1999-12-31", "M", "123");
+        App.contacts.add(c);
+        App.rebuildIndexes();
+        App.store.markDirty(c);
+        App.save();
+        assertTrue(App.store.segmentFile(App.store.shardOf(c)).exists());
+
+        App.contacts = new ArrayList<>();
+        App.load();
+        assertEquals(1, App.contacts.size());
+        assertEquals(c.getId(), App.contacts.get(0).getId());
+    }
+
+    @Test
+    void shardsOption_withDamagedSegment_reportsIt_andKeepsACopy() throws IOException {
+        App.fileName = tempDir.resolve("damaged.db").toString();
+        App.parseOptions(new String[]{"--shards=2"});
+        Contact c = new OrganizationContact("Acme", "Delhi", "999");
+        App.store.saveAll(Collections.singletonList(c));
+        File bad = App.store.segmentFile(1 - App.store.shardOf(c));
+        try (FileOutputStream fos = new FileOutputStream(bad)) {
+            fos.write(new byte[]{1, 2, 3});
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        App.load();
+
+        assertEquals(1, App.contacts.size());
+        assertTrue(out.toString().contains("Cannot read " + bad.getName()));
+        assertTrue(new File(bad.getPath() + ".damaged").exists());
+    }
+
+    @Test
+    void saveSearchAndList_readThePinnedVersion_notAnEditInProgress() throws Exception {
+        File f = tempDir.resolve("pinned.db").toFile();
+        App.fileName = f.getAbsolutePath();
+        OrganizationContact c = new OrganizationContact("Acme", "Delhi", "999");
+        App.contacts.add(c);
+        App.recordAdded(c);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+
+        c.setName("Half"); // edited in place, not recorded yet
+        App.save();
+        assertEquals("Acme", App.readContacts(f).get(0).getListName());
+        assertEquals(Collections.singletonList(0), App.searchIndexes(App.compileQuery("acme")));
+        assertTrue(App.searchIndexes(App.compileQuery("half")).isEmpty());
+
+        App.recordEdited(c, "name", "Acme");
+        App.save();
+        assertEquals("Half", App.readContacts(f).get(0).getListName());
+        assertEquals(Collections.singletonList(0), App.searchIndexes(App.compileQuery("half")));
+
+        setAppScannerWithInput("1\nmenu\n");
+        invokePrivateStatic("listMenu");
+        assertTrue(out.toString().contains("1. Half"));
+    }
+
+    @Test
+    void columnarOption_loadsIntoColumnarStore_andSearchUsesIt() throws Exception {
+        File f = tempDir.resolve("columnar.db").toFile();
+        App.fileName = f.getAbsolutePath();
+        App.contacts.add(new PersonContact("John", "Smith", "1999-12-31", "M", "123"));
+        App.contacts.add(new OrganizationContact("Acme", "Delhi", "999"));
+        App.rebuildIndexes();
+        App.save();
+
+        App.parseOptions(new String[]{"--columnar"});
+        App.load();
+        assertTrue(App.contacts instanceof ColumnarStore);
+        assertEquals("John Smith", App.contacts.get(0).getListName());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        setAppScannerWithInput("delhi\n");
+        @SuppressWarnings("unchecked")
+        List<Integer> results = (List<Integer>) invokePrivateStatic("doSearchOnce");
+        assertEquals(Collections.singletonList(1), results);
+
+        // saved as plain contacts, so the file still loads without the option
+        App.save();
+        App.columnar = false;
+        App.load();
+        assertFalse(App.contacts instanceof ColumnarStore);
+        assertEquals("Acme", App.contacts.get(1).getListName());
+    }
+
+    @Test
+    void followOption_readsBook_andRejectsWrites() throws Exception {
+        File f = tempDir.resolve("shared.db").toFile();
+        App.fileName = f.getAbsolutePath();
+        App.contacts.add(new OrganizationContact("Acme", "Delhi", "999"));
+        App.rebuildIndexes();
+        App.save();
+        App.contacts = new ArrayList<>();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        setAppScannerWithInput("count\nadd\nlist\n1\nedit\ndelete\nmenu\nexit\n");
+        App.main(new String[]{f.getAbsolutePath(), "--follow"});
+
+        String printed = out.toString();
+        assertTrue(printed.contains("The Phone Book has 1 records."));
+        assertTrue(printed.contains("The book is read-only in follow mode."));
+        assertFalse(printed.contains("The record removed!"));
+        assertEquals(1, App.contacts.size());
+        assertSame(App.follower.timeIndex(), App.activeTimeIndex());
+        assertEquals(1, App.activeTimeIndex().createdSince(LocalDateTime.MIN).count());
+    }
+
     @Test
     void printSavedIfFile_branches() {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -260,6 +391,7 @@ class AppTest {
     @Test
     void listMenu_back_branch_and_invalidInput_loop_then_selectRecord_then_menu() throws Exception {
         App.contacts.add(new PersonContact("John", "Smith", "1999-12-31", "M", "123"));
+        App.rebuildIndexes();
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         System.setOut(new PrintStream(out));
@@ -285,6 +417,7 @@ class AppTest {
     void searchMenu_again_branch_selectRecord_then_menu_and_back_branch() throws Exception {
         App.contacts.add(new PersonContact("John", "Smith", "1999-12-31", "M", "123"));
         App.contacts.add(new OrganizationContact("Acme", "Delhi", "999"));
+        App.rebuildIndexes();
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         System.setOut(new PrintStream(out));
@@ -314,12 +447,67 @@ class AppTest {
         assertTrue(out.toString().contains("[search] Enter action"));
     }
 
+    @Test
+    void searchMenu_birthdaysAndAge_useBirthdayIndex() throws Exception {
+        LocalDate today = LocalDate.now();
+        App.contacts.add(new PersonContact("Old", "Timer", today.minusYears(80).plusDays(40).toString(), "M", "1"));
+        App.contacts.add(new PersonContact("Soon", "Party", today.minusYears(30).plusDays(2).toString(), "F", "2"));
+        App.contacts.add(new PersonContact("No", "Date", "", "M", "3"));
+        App.contacts.add(new OrganizationContact("Acme", "Delhi", "999"));
+        App.rebuildIndexes();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+
+        setAppScannerWithInput("zzz\nbirthdays\n7\nage\n29 - 30\n1\nmenu\n");
+        invokePrivateStatic("searchMenu");
+        String printed = out.toString();
+        assertTrue(printed.contains("Found 0 results:"));
+        assertTrue(printed.contains("1. Soon Party"));
+        assertTrue(printed.contains("Name: Soon"));
+
+        out.reset();
+        setAppScannerWithInput("zzz\nage\n40-30\nbirthdays\nmany\nage\n79-200\nback\n");
+        invokePrivateStatic("searchMenu");
+        printed = out.toString();
+        assertTrue(printed.contains("Bad age range!"));
+        assertTrue(printed.contains("Bad number of days!"));
+        assertTrue(printed.contains("1. Old Timer"));
+
+        // edits and deletes reach the index
+        setAppScannerWithInput("edit\nbirth\n" + today + "\nmenu\n");
+        invokePrivateStatic("recordMenu", int.class, 2);
+        assertEquals(Collections.singletonList(2), App.indexesOf(App.birthdays.upcoming(today, 0)));
+        setAppScannerWithInput("delete\n");
+        invokePrivateStatic("recordMenu", int.class, 2);
+        assertTrue(App.birthdays.upcoming(today, 0).isEmpty());
+    }
+
+    @Test
+    void positionOf_findsContactsInIdOrder_andOutOfOrderBooks() {
+        List<Contact> book = new BookGenerator(3).generate(50);
+        App.contacts = new ArrayList<>(book);
+        assertEquals(37, App.positionOf(book.get(37).getId()));
+        assertEquals(-1, App.positionOf(-5));
+        assertEquals(Arrays.asList(4, 0), App.indexesOf(Arrays.asList(book.get(4), book.get(0))));
+
+        Collections.swap(App.contacts, 3, 40);
+        assertEquals(40, App.positionOf(book.get(3).getId()));
+        assertSame(book.get(40), App.contactById(book.get(40).getId()));
+
+        App.contacts = ColumnarStore.copyOf(book);
+        assertEquals(12, App.positionOf(book.get(12).getId()));
+        assertEquals(book.get(12).getListName(), App.contactById(book.get(12).getId()).getListName());
+        assertNull(App.contactById(-5));
+    }
+
     @Test
     void recordMenu_edit_branch_then_delete_branch() throws Exception {
         File f = tempDir.resolve("records.db").toFile();
         App.fileName = f.getAbsolutePath();
 
         App.contacts.add(new PersonContact("John", "Smith", "1999-12-31", "M", "123"));
+        App.rebuildIndexes();
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         System.setOut(new PrintStream(out));
@@ -342,9 +530,159 @@ class AppTest {
         assertTrue(printed.contains("Saved"));
     }
 
+    @Test
+    void indexes_followAddEditAndDelete() throws Exception {
+        App.timeIndex.rebuild(App.contacts);
+        assertSame(App.timeIndex, App.activeTimeIndex());
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+
+        setAppScannerWithInput("organization\nAcme\nDelhi\n999\n");
+        invokePrivateStatic("add");
+        Contact added = App.contacts.get(0);
+        assertEquals(1, App.timeIndex.size());
+
+        LocalDateTime sync = added.getTimeLastEdit().plusNanos(1);
+        Thread.sleep(2);
+        setAppScannerWithInput("edit\naddress\nMumbai\nmenu\n");
+        invokePrivateStatic("recordMenu", int.class, 0);
+        assertEquals(1, App.timeIndex.editedSince(sync).count());
+
+        setAppScannerWithInput("delete\n");
+        invokePrivateStatic("recordMenu", int.class, 0);
+        assertEquals(0, App.timeIndex.size());
+    }
+
+    @Test
+    void changeFeed_publishesFromMutationPoints() throws Exception {
+        long start = App.changes.lastSequence();
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+
+        setAppScannerWithInput("organization\nAcme\nDelhi\n999\n");
+        invokePrivateStatic("add");
+
+        // invalid number clears it; an unknown field publishes nothing
+        setAppScannerWithInput("edit\nnumber\n++1\nedit\nbogus\nx\ndelete\n");
+        invokePrivateStatic("recordMenu", int.class, 0);
+
+        List<ChangeFeed.ChangeEvent> events = App.changes.readAfter(start, 10);
+        assertEquals(3, events.size());
+        assertEquals(ChangeFeed.Type.ADD, events.get(0).type);
+        assertEquals("number", events.get(1).field);
+        assertEquals("999", events.get(1).oldValue);
+        assertEquals("", events.get(1).newValue);
+        assertEquals(ChangeFeed.Type.DELETE, events.get(2).type);
+    }
+
+    @Test
+    void changeFeed_replicaFollowsBulkAndMergeEdits() throws Exception {
+        Contact a = new PersonContact("Anna", "Smith", "1990-01-01", "F", "123");
+        Contact b = new PersonContact("Anna", "Smith", "1990-01-01", "F", "123");
+        Contact c = new OrganizationContact("Acme", "Delhi", "999");
+        App.contacts.addAll(Arrays.asList(a, b, c));
+        ChangeFeed.Replica replica = new ChangeFeed.Replica(App.contacts, App.changes.lastSequence());
+
+        assertEquals(1, App.setWhere(App.compileQuery("acme"), "address", "Pune"));
+        assertEquals(1, App.mergeDuplicates(Deduplicator.findCandidates(App.contacts, Deduplicator.DEFAULT_THRESHOLD)));
+        replica.accept(App.changes.readAfter(replica.applied(), 100));
+
+        assertEquals(App.contacts.size(), replica.size());
+        assertEquals("Pune", replica.get(c.getId()).getFieldValue("address"));
+        for (Contact kept : App.contacts) {
+            assertEquals(kept.toFields(), replica.get(kept.getId()).toFields());
+        }
+    }
+
+    @Test
+    void dedupMenu_autoMergesChains_andManualPick() throws Exception {
+        File f = tempDir.resolve("dups.db").toFile();
+        App.fileName = f.getAbsolutePath();
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+
+        App.contacts.add(new PersonContact("John", "Smith", "", "", "555 123"));
+        App.contacts.add(new PersonContact("John", "Smith", "1999-12-31", "", "555-123"));
+        App.contacts.add(new PersonContact("John", "Smith", "", "M", "555123"));
+        App.contacts.add(new OrganizationContact("Acme", "Delhi", "999"));
+        App.contacts.add(new OrganizationContact("Acme Ltd", "", "999"));
+        App.rebuildIndexes();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        setAppScannerWithInput("x\nauto\n");
+        invokePrivateStatic("dedupMenu");
+
+        assertTrue(out.toString().contains("Merged 2 duplicate records."));
+        assertEquals(3, App.contacts.size());
+        Contact john = App.contacts.get(0);
+        assertEquals("1999-12-31", john.getFieldValue("birth"));
+        assertEquals("M", john.getFieldValue("gender"));
+
+        out.reset();
+        setAppScannerWithInput("1\n");
+        invokePrivateStatic("dedupMenu");
+        assertTrue(out.toString().contains("Merged 1 duplicate records."));
+        assertEquals(2, App.contacts.size());
+
+        setAppScannerWithInput("back\n");
+        invokePrivateStatic("dedupMenu");
+        assertEquals(2, App.contacts.size());
+    }
+
+    @Test
+    void bulkMenu_deleteWhere_and_setWhere() throws Exception {
+        File f = tempDir.resolve("bulk.db").toFile();
+        App.fileName = f.getAbsolutePath();
+        for (int i = 0; i < 6; i++) {
+            App.contacts.add(new PersonContact(i % 2 == 0 ? "Even" : "Odd", "S" + i, "2000-01-01", "M", "12" + i));
+        }
+        App.contacts.add(new OrganizationContact("Odd Org", "Delhi", "999"));
+        App.rebuildIndexes();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+
+        setAppScannerWithInput("delete\n^even\n");
+        invokePrivateStatic("bulkMenu");
+        assertTrue(out.toString().contains("3 records removed!"));
+        assertEquals(4, App.contacts.size());
+
+        // persons get the new surname, the organization has no such field
+        setAppScannerWithInput("set\nodd\nsurname\nBulk\n");
+        invokePrivateStatic("bulkMenu");
+        assertTrue(out.toString().contains("3 records updated!"));
+        assertEquals("Bulk", App.contacts.get(0).getFieldValue("surname"));
+
+        // a bad value is rejected once and nothing changes
+        out.reset();
+        setAppScannerWithInput("set\nodd\nbirth\nnope\n");
+        invokePrivateStatic("bulkMenu");
+        assertFalse(out.toString().contains("records updated"));
+        assertEquals("2000-01-01", App.contacts.get(0).getFieldValue("birth"));
+
+        setAppScannerWithInput("set\nodd\nnumber\n++1\n");
+        invokePrivateStatic("bulkMenu");
+        assertEquals("121", App.contacts.get(0).getNumberPrintable());
+        setAppScannerWithInput("set\nodd\ngender\nx\n");
+        invokePrivateStatic("bulkMenu");
+        assertEquals("M", App.contacts.get(0).getFieldValue("gender"));
+
+        setAppScannerWithInput("set\norg\nnumber\n\n");
+        invokePrivateStatic("bulkMenu");
+        assertEquals("[no number]", App.contacts.get(3).getNumberPrintable());
+
+        setAppScannerWithInput("purge\n");
+        invokePrivateStatic("bulkMenu");
+        setAppScannerWithInput("delete\nnobody\n");
+        invokePrivateStatic("bulkMenu");
+        assertEquals(4, App.contacts.size());
+
+        App.load();
+        assertEquals(4, App.contacts.size());
+    }
+
     @Test
     void doSearchOnce_patternSyntaxException_branch() throws Exception {
         App.contacts.add(new OrganizationContact("OpenAI", "San Francisco", "999"));
+        App.rebuildIndexes();
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         System.setOut(new PrintStream(out));
@@ -362,6 +700,7 @@ class AppTest {
     void count_prints_correct_size() throws Exception {
         App.contacts.add(new PersonContact("A", "B", "2000-01-01", "M", "123"));
         App.contacts.add(new OrganizationContact("Org", "Addr", "999"));
+        App.rebuildIndexes();
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         System.setOut(new PrintStream(out));
@@ -0,0 +1,154 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthdayIndexTest {
+
+    private PrintStream originalOut;
+    private final Map<Long, Contact> book = new HashMap<>();
+    private BirthdayIndex index;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        index = new BirthdayIndex(book::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    private void rebuild(Contact... contacts) {
+        for (Contact c : contacts) {
+            book.put(c.getId(), c);
+        }
+        index.rebuild(Arrays.asList(contacts));
+    }
+
+    private static List<String> names(List<Contact> contacts) {
+        return contacts.stream().map(Contact::getListName).collect(Collectors.toList());
+    }
+
+    @Test
+    void birthDay_isStoredAsDayNumber_andKeepsStringApi() {
+        PersonContact p = new PersonContact("A", "B", "1999-12-31", "M", "123");
+        assertEquals(LocalDate.of(1999, 12, 31).toEpochDay(), p.getBirthDay());
+        assertEquals(LocalDate.of(1999, 12, 31), p.getBirthDate());
+        assertEquals("1999-12-31", p.getFieldValue("birth"));
+
+        p.setBirthDate("31.12.1999");
+        assertEquals(PersonContact.NO_BIRTH_DAY, p.getBirthDay());
+        assertNull(p.getBirthDate());
+        assertEquals("[no data]", p.getFieldValue("birth"));
+
+        assertEquals(PersonContact.NO_BIRTH_DAY, new OrganizationContact("O", "A", "1").getBirthDay());
+        assertEquals(PersonContact.NO_BIRTH_DAY, PersonContact.toBirthDay("+999999999-12-31"));
+    }
+
+    @Test
+    void birthDay_survivesSerializationAndColumnarRows() throws Exception {
+        PersonContact p = new PersonContact("A", "B", "1984-02-29", "F", "123");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(p);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            PersonContact copy = (PersonContact) ois.readObject();
+            assertEquals(p.getBirthDay(), copy.getBirthDay());
+            assertEquals("A", copy.getFieldValue("name"));
+            assertEquals("F", copy.getFieldValue("gender"));
+        }
+
+        ColumnarStore store = ColumnarStore.copyOf(Collections.singletonList(p));
+        assertEquals(p.getBirthDay(), store.get(0).getBirthDay());
+        store.get(0).setField("birth", "2000-01-02");
+        assertEquals("2000-01-02", store.materialize(0).getFieldValue("birth"));
+    }
+
+    @Test
+    void upcoming_wrapsTheYear_andOrdersBySoonest() {
+        PersonContact jan2 = new PersonContact("Jan", "Two", "1990-01-02", "M", "1");
+        PersonContact dec30 = new PersonContact("Dec", "Thirty", "1980-12-30", "F", "2");
+        PersonContact dec31 = new PersonContact("Dec", "ThirtyOne", "2001-12-31", "F", "3");
+        PersonContact none = new PersonContact("No", "Date", "", "M", "4");
+        rebuild(jan2, dec31, dec30, none, new OrganizationContact("O", "A", "5"));
+
+        LocalDate today = LocalDate.of(2023, 12, 30);
+        assertEquals(Arrays.asList("Dec Thirty", "Dec ThirtyOne", "Jan Two"), names(index.upcoming(today, 3)));
+        assertEquals(Collections.singletonList("Dec Thirty"), names(index.upcoming(today, 0)));
+        assertEquals(3, index.upcoming(today, 10_000).size());
+        assertTrue(index.upcoming(today, -1).size() <= 1);
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void upcoming_celebratesLeapDayOnFeb28InCommonYears() {
+        PersonContact leap = new PersonContact("Leap", "Day", "2000-02-29", "M", "1");
+        book.put(leap.getId(), leap);
+        index.add(leap);
+
+        assertEquals(1, index.upcoming(LocalDate.of(2023, 2, 28), 0).size());
+        assertEquals(0, index.upcoming(LocalDate.of(2024, 2, 28), 0).size());
+        assertEquals(1, index.upcoming(LocalDate.of(2024, 2, 29), 0).size());
+        assertEquals(1, index.upcoming(LocalDate.of(2023, 2, 27), 400).size());
+    }
+
+    @Test
+    void ageBetween_isInclusive_onBirthdayBoundaries() {
+        LocalDate today = LocalDate.of(2024, 6, 15);
+        PersonContact turns30Today = new PersonContact("T", "Thirty", "1994-06-15", "M", "1");
+        PersonContact turns30Tomorrow = new PersonContact("T", "TwentyNine", "1994-06-16", "M", "2");
+        PersonContact turned41Today = new PersonContact("F", "FortyOne", "1983-06-15", "F", "3");
+        PersonContact turns41Tomorrow = new PersonContact("F", "Forty", "1983-06-16", "F", "4");
+        rebuild(turns30Today, turns30Tomorrow, turned41Today, turns41Tomorrow);
+
+        assertEquals(Arrays.asList("F Forty", "T Thirty"), names(index.ageBetween(today, 30, 40)));
+        assertEquals(Collections.singletonList("T TwentyNine"), names(index.ageBetween(today, 0, 29)));
+        assertEquals(4, index.ageBetween(today, 0, Integer.MAX_VALUE).size());
+        assertTrue(index.ageBetween(today, 40, 30).isEmpty());
+    }
+
+    @Test
+    void changes_moveContactBetweenBuckets_andRemoveDropsIt() {
+        PersonContact p = new PersonContact("A", "B", "", "M", "1");
+        rebuild(p);
+        LocalDate today = LocalDate.of(2024, 3, 10);
+        assertTrue(index.upcoming(today, 0).isEmpty());
+
+        int before = p.getBirthDay();
+        p.setField("birth", "1970-03-10");
+        index.changed(p, before);
+        assertEquals(Collections.singletonList(p), index.upcoming(today, 0));
+        assertEquals(Collections.singletonList(p), index.ageBetween(today, 54, 54));
+
+        before = p.getBirthDay();
+        p.setField("birth", "1970-03-11");
+        index.changed(p, before);
+        assertTrue(index.upcoming(today, 0).isEmpty());
+        assertEquals(1, index.upcoming(today, 1).size());
+
+        index.remove(p);
+        assertEquals(0, index.size());
+        assertTrue(index.upcoming(today, 1).isEmpty());
+    }
+
+    @Test
+    void contactsNoLongerInTheBook_areSkipped() {
+        PersonContact kept = new PersonContact("Kept", "K", "1990-05-05", "M", "1");
+        PersonContact gone = new PersonContact("Gone", "G", "1990-05-05", "F", "2");
+        rebuild(kept, gone);
+        book.remove(gone.getId());
+
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList(kept), index.upcoming(LocalDate.of(2024, 5, 5), 0));
+    }
+}
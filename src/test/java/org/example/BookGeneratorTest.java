@@ -0,0 +1,111 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookGeneratorTest {
+
+    private PrintStream originalOut;
+    private ByteArrayOutputStream out;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    private static List<Map<String, String>> fields(List<Contact> contacts) {
+        return contacts.stream().map(Contact::toFields).collect(Collectors.toList());
+    }
+
+    @Test
+    void sameSeed_sameBook_differentSeed_differentBook() {
+        List<Contact> a = new BookGenerator(42).generate(500);
+        List<Contact> b = new BookGenerator(42).generate(500);
+        List<Contact> c = new BookGenerator(43).generate(500);
+
+        assertEquals(fields(a), fields(b));
+        assertNotEquals(fields(a), fields(c));
+        for (int i = 0; i < a.size(); i++) {
+            assertEquals(a.get(i).getTimeCreated(), b.get(i).getTimeCreated());
+            assertEquals(a.get(i).getTimeLastEdit(), b.get(i).getTimeLastEdit());
+            assertFalse(a.get(i).getTimeLastEdit().isBefore(a.get(i).getTimeCreated()));
+            assertTrue(a.get(i).getTimeCreated().getYear() >= 2020);
+        }
+        assertNotEquals(a.get(0).getTimeCreated(), c.get(0).getTimeCreated());
+        assertEquals(500, a.stream().map(Contact::getId).distinct().count());
+        assertNotEquals(a.get(0).getId(), b.get(0).getId());
+    }
+
+    @Test
+    void everyFormat_isValid_andHasItsShape() {
+        BookGenerator generator = new BookGenerator(7);
+        for (int i = 0; i < 200; i++) {
+            for (BookGenerator.NumberFormat format : BookGenerator.NumberFormat.values()) {
+                String number = generator.number(format);
+                if (format == BookGenerator.NumberFormat.NONE) {
+                    assertEquals("", number);
+                    continue;
+                }
+                assertTrue(Contact.isValidNumber(number), format + ": " + number);
+                switch (format) {
+                    case PLAIN:
+                        assertTrue(number.matches("[0-9]{7,11}"), number);
+                        break;
+                    case LETTERS:
+                        assertTrue(number.matches("1-800-[A-Z]+"), number);
+                        break;
+                    case PAREN_FIRST:
+                        assertTrue(number.matches("[+]?\\(.*"), number);
+                        break;
+                    case PAREN_SECOND:
+                        assertTrue(number.matches("[+][0-9]+ \\(.*"), number);
+                        break;
+                    default:
+                        assertFalse(number.contains("("), number);
+                        break;
+                }
+            }
+        }
+    }
+
+    @Test
+    void shareAndFormats_areHonoured_withoutValidationMessages() {
+        List<Contact> persons = new BookGenerator(1, 1.0, BookGenerator.NumberFormat.GROUPED).generate(300);
+        assertTrue(persons.stream().allMatch(c -> c instanceof PersonContact));
+        assertTrue(persons.stream().allMatch(c -> c.getNumber().startsWith("+")));
+        assertTrue(persons.stream().anyMatch(c -> c.getBirthDay() == PersonContact.NO_BIRTH_DAY));
+        assertTrue(persons.stream().anyMatch(c -> "[no data]".equals(c.getFieldValue("gender"))));
+
+        List<Contact> orgs = new BookGenerator(1, 0.0, BookGenerator.NumberFormat.NONE).generate(50);
+        assertTrue(orgs.stream().allMatch(c -> c instanceof OrganizationContact));
+        assertTrue(orgs.stream().allMatch(c -> "[no number]".equals(c.getNumberPrintable())));
+
+        assertEquals("", out.toString());
+        assertThrows(IllegalArgumentException.class, () -> new BookGenerator(1, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new BookGenerator(1, 0.5));
+    }
+
+    @Test
+    void values_areAcceptedByTheirFields() {
+        BookGenerator generator = new BookGenerator(3);
+        PersonContact p = generator.nextPerson();
+        for (int i = 0; i < 50; i++) {
+            for (String field : p.getEditableFields()) {
+                p.setField(field, generator.value(field));
+            }
+        }
+        assertEquals("", out.toString());
+    }
+}
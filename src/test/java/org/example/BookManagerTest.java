@@ -0,0 +1,237 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void open_loadsLazily_andCountsHits() throws Exception {
+        File existing = tempDir.resolve("acme.db").toFile();
+        App.writeContacts(existing, new ArrayList<>(Collections.singletonList(
+                new OrganizationContact("Acme", "Delhi", "999"))));
+
+        BookManager manager = new BookManager(tempDir.toFile(), 1 << 20);
+        assertNull(manager.stats("acme"));
+
+        try (BookManager.Handle h = manager.open("acme")) {
+            assertEquals(1, h.contacts().size());
+            assertEquals("acme", h.name());
+        }
+        try (BookManager.Handle h = manager.open("acme")) {
+            assertEquals("Acme", h.contacts().get(0).getListName());
+        }
+        try (BookManager.Handle h = manager.open("fresh")) {
+            assertTrue(h.contacts().isEmpty());
+        }
+
+        BookManager.Stats s = manager.stats("acme");
+        assertEquals(1, s.loads);
+        assertEquals(1, s.hits);
+        assertEquals(1, s.records);
+        assertTrue(s.loaded);
+        assertTrue(s.toString().startsWith("acme: 1 records"));
+        assertEquals(2, manager.allStats().size());
+    }
+
+    @Test
+    void overBudget_evictsLeastRecentlyUsed_andFlushesDirtyBooks() throws Exception {
+        long oneBook = BookManager.estimateBytes(book("x", 50));
+        BookManager manager = new BookManager(tempDir.toFile(), oneBook * 2 + oneBook / 2);
+
+        for (String name : new String[]{"a", "b"}) {
+            try (BookManager.Handle h = manager.open(name)) {
+                h.contacts().addAll(book(name, 50));
+                h.markDirty();
+            }
+        }
+        try (BookManager.Handle h = manager.open("a")) {
+            assertEquals(50, h.contacts().size()); // a is now most recently used
+        }
+        try (BookManager.Handle h = manager.open("c")) {
+            h.contacts().addAll(book("c", 50));
+            h.markDirty();
+        }
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("a", "c")), manager.loadedBooks());
+        assertTrue(manager.loadedBytes() <= oneBook * 2 + oneBook / 2);
+        BookManager.Stats b = manager.stats("b");
+        assertFalse(b.loaded);
+        assertEquals(1, b.evictions);
+        assertEquals(1, b.saves);
+        assertEquals(50, App.readContacts(tempDir.resolve("b.db").toFile()).size());
+
+        // evicted books come back from disk
+        try (BookManager.Handle h = manager.open("b")) {
+            assertEquals(50, h.contacts().size());
+        }
+        assertEquals(2, manager.stats("b").loads);
+    }
+
+    @Test
+    void openBooks_areNeverEvicted() throws Exception {
+        BookManager manager = new BookManager(tempDir.toFile(), 1);
+        try (BookManager.Handle a = manager.open("a");
+             BookManager.Handle b = manager.open("b")) {
+            a.contacts().add(new OrganizationContact("Acme", "Delhi", "999"));
+            a.markDirty();
+            assertEquals(2, manager.loadedBooks().size());
+        }
+        assertTrue(manager.loadedBooks().isEmpty());
+        assertEquals(1, manager.stats("a").saves);
+    }
+
+    @Test
+    void close_flushesDirtyBooks_andNamesAreChecked() throws Exception {
+        BookManager manager = new BookManager(tempDir.toFile(), 1 << 20);
+        try (BookManager.Handle h = manager.open("kept")) {
+            h.contacts().add(new OrganizationContact("Acme", "Delhi", "999"));
+            h.markDirty();
+        }
+        manager.close();
+        assertEquals(1, App.readContacts(tempDir.resolve("kept.db").toFile()).size());
+
+        assertThrows(IllegalArgumentException.class, () -> manager.open("../etc"));
+        assertThrows(IllegalArgumentException.class, () -> manager.open(null));
+        assertThrows(IllegalArgumentException.class, () -> new BookManager(tempDir.toFile(), 0));
+    }
+
+    @Test
+    void flush_skipsOpenBooks_untilTheirLastHandleIsClosed() throws Exception {
+        BookManager manager = new BookManager(tempDir.toFile(), 1 << 20);
+        File file = tempDir.resolve("busy.db").toFile();
+        BookManager.Handle first = manager.open("busy");
+        BookManager.Handle second = manager.open("busy");
+        first.contacts().add(new OrganizationContact("Acme", "Delhi", "999"));
+        first.markDirty();
+
+        manager.flushAll();
+        assertFalse(file.exists());
+        manager.close();
+        assertFalse(file.exists());
+        first.close();
+        assertFalse(file.exists()); // still open through the second handle
+        second.close();
+        assertEquals(1, App.readContacts(file).size());
+        assertEquals(1, manager.stats("busy").saves);
+    }
+
+    @Test
+    void unreadableBook_isNotOpened_andItsFileIsKept() throws Exception {
+        File damaged = tempDir.resolve("damaged.db").toFile();
+        byte[] garbage = {(byte) 0xAC, (byte) 0xED, 0, 5, 1, 2, 3};
+        try (FileOutputStream fos = new FileOutputStream(damaged)) {
+            fos.write(garbage);
+        }
+
+        BookManager manager = new BookManager(tempDir.toFile(), 1 << 20);
+        IOException e = assertThrows(IOException.class, () -> manager.open("damaged"));
+        assertTrue(e.getMessage().contains("damaged"));
+        assertTrue(manager.loadedBooks().isEmpty());
+        manager.close();
+        assertArrayEquals(garbage, Files.readAllBytes(damaged.toPath()));
+    }
+
+    @Test
+    void closedHandles_refuseContactsAndMarkDirty() throws Exception {
+        BookManager manager = new BookManager(tempDir.toFile(), 1 << 20);
+        BookManager.Handle h = manager.open("shop");
+        h.close();
+        h.close();
+        assertThrows(IllegalStateException.class, h::contacts);
+        assertThrows(IllegalStateException.class, h::markDirty);
+        assertEquals("shop", h.name());
+    }
+
+    @Test
+    void slowLoad_doesNotHoldUpOtherBooks_andIsSharedByItsOpeners() throws Exception {
+        // a FIFO blocks the reader until the test writes the book into it
+        File slow = tempDir.resolve("slow.db").toFile();
+        Assumptions.assumeTrue(mkfifo(slow));
+        BookManager manager = new BookManager(tempDir.toFile(), 1 << 20);
+        AtomicReference<Object> first = new AtomicReference<>();
+        AtomicReference<Object> second = new AtomicReference<>();
+        Thread loader = new Thread(() -> first.set(openAndRead(manager, "slow")));
+        loader.start();
+        assertTrue(waitFor(() -> manager.stats("slow") != null));
+        Thread waiter = new Thread(() -> second.set(openAndRead(manager, "slow")));
+        waiter.start();
+        assertTrue(waitFor(() -> waiter.getState() == Thread.State.WAITING));
+
+        try (BookManager.Handle h = manager.open("other")) { // not blocked by the slow load
+            assertTrue(h.contacts().isEmpty());
+        }
+        assertFalse(manager.stats("slow").loaded);
+
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(slow))) {
+            oos.writeObject(new ArrayList<>(book("s", 3)));
+        }
+        loader.join(20_000);
+        waiter.join(20_000);
+        assertEquals(3, first.get());
+        assertEquals(3, second.get());
+        assertEquals(1, manager.stats("slow").loads);
+        assertEquals(1, manager.stats("slow").hits);
+    }
+
+    private static List<Contact> book(String prefix, int n) {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            contacts.add(new PersonContact(prefix + i, "Surname", "2000-01-01", "M", "12" + i));
+        }
+        return contacts;
+    }
+
+    private static Object openAndRead(BookManager manager, String name) {
+        try (BookManager.Handle h = manager.open(name)) {
+            return h.contacts().size();
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    private static boolean mkfifo(File f) {
+        try {
+            return new ProcessBuilder("mkfifo", f.getPath()).start().waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
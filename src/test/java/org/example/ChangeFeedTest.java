@@ -0,0 +1,146 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void events_areSequenced_andReadableFromAnyPosition() {
+        ChangeFeed feed = new ChangeFeed();
+        PersonContact p = new PersonContact("John", "Smith", "1999-12-31", "M", "123");
+
+        feed.publishAdd(p);
+        feed.publishEdit(p, "name", "John", "Jane");
+        feed.publishDelete(p);
+
+        List<ChangeFeed.ChangeEvent> all = feed.readAfter(0, 10);
+        assertEquals(3, all.size());
+        assertEquals(Arrays.asList(1L, 2L, 3L), Arrays.asList(all.get(0).sequence, all.get(1).sequence, all.get(2).sequence));
+        assertEquals(ChangeFeed.Type.ADD, all.get(0).type);
+        assertEquals("person", all.get(0).fields.get("type"));
+        assertEquals("Jane", all.get(1).newValue);
+        assertEquals(ChangeFeed.Type.DELETE, all.get(2).type);
+        assertTrue(all.get(1).toString().contains("John -> Jane"));
+
+        assertEquals(1, feed.readAfter(1, 1).size());
+        assertEquals(2L, feed.readAfter(1, 1).get(0).sequence);
+        assertTrue(feed.readAfter(3, 10).isEmpty());
+        assertEquals(3, feed.lastSequence());
+    }
+
+    @Test
+    void readAfter_trimmedPosition_fails() {
+        ChangeFeed feed = new ChangeFeed(2);
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "999");
+        for (int i = 0; i < 5; i++) {
+            feed.publishEdit(o, "name", "a", "b");
+        }
+        assertEquals(2, feed.readAfter(3, 10).size());
+        assertThrows(IllegalStateException.class, () -> feed.readAfter(1, 10));
+    }
+
+    @Test
+    void readAfter_whileTrimming_neverSkipsEvents() throws Exception {
+        ChangeFeed feed = new ChangeFeed(8);
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "999");
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 50_000; i++) {
+                feed.publishEdit(o, "name", "a", "b");
+            }
+        });
+        writer.start();
+
+        long position = 0;
+        int trimmed = 0;
+        while (writer.isAlive() || position < feed.lastSequence()) {
+            try {
+                List<ChangeFeed.ChangeEvent> batch = feed.readAfter(position, 4);
+                for (ChangeFeed.ChangeEvent e : batch) {
+                    assertEquals(++position, e.sequence);
+                }
+            } catch (IllegalStateException e) {
+                trimmed++;
+                position = feed.lastSequence() - 1; // resync
+            }
+        }
+        writer.join();
+        assertEquals(50_000, position, trimmed + " resyncs");
+        assertThrows(IllegalArgumentException.class, () -> feed.readAfter(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> feed.readAfter(0, -1));
+    }
+
+    @Test
+    void subscription_deliversBatches_andReplicaCatchesUp() throws Exception {
+        ChangeFeed feed = new ChangeFeed();
+        PersonContact p = new PersonContact("John", "Smith", "1999-12-31", "M", "");
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "999");
+        feed.publishAdd(p);
+
+        ChangeFeed.Replica replica = new ChangeFeed.Replica();
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        try (ChangeFeed.Subscription sub = feed.subscribe(0, 2, batch -> {
+            batchSizes.add(batch.size());
+            replica.accept(batch);
+        })) {
+            feed.publishAdd(o);
+            p.setField("birth", "");
+            feed.publishEdit(p, "birth", "1999-12-31", "[no data]");
+            feed.publishDelete(o);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sub.position() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(4, sub.position());
+            assertNull(sub.failure());
+        }
+
+        assertEquals(4, replica.applied());
+        assertEquals(1, replica.size());
+        assertNull(replica.get(o.getId()));
+        Contact copy = replica.get(p.getId());
+        assertEquals("[no data]", copy.getFieldValue("birth"));
+        assertEquals("[no number]", copy.getNumberPrintable());
+        assertTrue(batchSizes.stream().allMatch(n -> n <= 2));
+
+        // replaying an already applied batch is a no-op
+        replica.accept(feed.readAfter(0, 10));
+        assertEquals(1, replica.size());
+    }
+
+    @Test
+    void replica_fromSnapshot_skipsOlderEvents() {
+        ChangeFeed feed = new ChangeFeed();
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "999");
+        feed.publishAdd(o);
+        feed.publishEdit(o, "name", "Acme", "Acme Ltd");
+        o.setName("Acme Ltd");
+
+        ChangeFeed.Replica replica = new ChangeFeed.Replica(Collections.singletonList(o), feed.lastSequence());
+        feed.publishEdit(o, "address", "Delhi", "Pune");
+        replica.accept(feed.readAfter(0, 10));
+
+        assertEquals("Acme Ltd", replica.get(o.getId()).getFieldValue("name"));
+        assertEquals("Pune", replica.get(o.getId()).getFieldValue("address"));
+        assertNotSame(o, replica.get(o.getId()));
+    }
+}
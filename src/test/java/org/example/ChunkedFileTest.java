@@ -0,0 +1,253 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PrintStream originalOut;
+    private ByteArrayOutputStream out;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+        App.contacts = new ArrayList<>();
+        App.fileName = null;
+    }
+
+    private static List<Contact> book(int size) {
+        List<Contact> contacts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            contacts.add(i % 3 == 0
+                    ? new OrganizationContact("Org" + i, "Street " + i, "+1 " + (100 + i % 900))
+                    : new PersonContact("Name" + i, "Surname" + i, "1990-01-0" + (1 + i % 9), "F", "12" + i));
+        }
+        return contacts;
+    }
+
+    // byte offset of chunk i in a file written by ChunkedFile
+    static int chunkOffset(byte[] file, int chunk) {
+        int chunks = ((file[8] & 0xff) << 24) | ((file[9] & 0xff) << 16) | ((file[10] & 0xff) << 8) | (file[11] & 0xff);
+        int offset = 12 + chunks * 12;
+        for (int i = 0; i < chunk; i++) {
+            int p = 12 + i * 12 + 4;
+            offset += ((file[p] & 0xff) << 24) | ((file[p + 1] & 0xff) << 16) | ((file[p + 2] & 0xff) << 8)
+                    | (file[p + 3] & 0xff);
+        }
+        return offset;
+    }
+
+    @Test
+    void write_thenRead_keepsOrderAcrossChunks() throws Exception {
+        File f = tempDir.resolve("big.db").toFile();
+        List<Contact> contacts = book(ChunkedFile.CHUNK_SIZE * 2 + 17);
+        ChunkedFile.write(f, contacts);
+        assertTrue(ChunkedFile.isChunked(f));
+
+        List<Integer> sizes = new ArrayList<>();
+        List<Contact> loaded = new ArrayList<>();
+        ChunkedFile.Report report = ChunkedFile.read(f, chunk -> {
+            sizes.add(chunk.size());
+            loaded.addAll(chunk);
+        }, null);
+
+        assertEquals(Arrays.asList(ChunkedFile.CHUNK_SIZE, ChunkedFile.CHUNK_SIZE, 17), sizes);
+        assertEquals(0, report.failedChunks);
+        assertEquals(0, report.lostRecords);
+        assertEquals(contacts.size(), loaded.size());
+        for (int i = 0; i < contacts.size(); i += 97) {
+            assertEquals(contacts.get(i).getId(), loaded.get(i).getId());
+            assertEquals(contacts.get(i).toFields(), loaded.get(i).toFields());
+        }
+    }
+
+    @Test
+    void write_replacesTheFileWhole_andAFailedWriteKeepsTheOldBook() throws Exception {
+        File f = tempDir.resolve("atomic.db").toFile();
+        List<Contact> first = book(10);
+        ChunkedFile.write(f, first);
+        try (ChunkedFile.Reader open = new ChunkedFile.Reader(f)) {
+            ChunkedFile.write(f, book(ChunkedFile.CHUNK_SIZE + 1));
+            assertEquals(10, open.size()); // an open reader keeps the file it opened
+            assertEquals(first.get(9).getId(), open.get(9).getId());
+        }
+        assertEquals(ChunkedFile.CHUNK_SIZE + 1, ChunkedFile.readAll(f).size());
+        assertFalse(new File(f.getPath() + ".tmp").exists());
+
+        File blocked = new File(f.getPath() + ".tmp");
+        assertTrue(blocked.mkdir()); // the temporary file cannot be created
+        assertThrows(IOException.class, () -> ChunkedFile.write(f, first));
+        assertEquals(ChunkedFile.CHUNK_SIZE + 1, ChunkedFile.readAll(f).size());
+    }
+
+    @Test
+    void emptyBook_andLegacyFiles_areReadable() throws Exception {
+        File empty = tempDir.resolve("empty.db").toFile();
+        ChunkedFile.write(empty, new ArrayList<>());
+        assertTrue(ChunkedFile.isChunked(empty));
+        assertTrue(App.readContacts(empty).isEmpty());
+
+        File legacy = tempDir.resolve("legacy.db").toFile();
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(legacy))) {
+            oos.writeObject(new ArrayList<>(book(3)));
+        }
+        assertFalse(ChunkedFile.isChunked(legacy));
+        assertEquals(3, App.readContacts(legacy).size());
+    }
+
+    @Test
+    void damagedChunk_isReportedAndSkipped_restStillLoads() throws Exception {
+        File f = tempDir.resolve("damaged.db").toFile();
+        List<Contact> contacts = book(ChunkedFile.CHUNK_SIZE * 3);
+        ChunkedFile.write(f, contacts);
+        byte[] bytes = Files.readAllBytes(f.toPath());
+        bytes[chunkOffset(bytes, 1) + 100] ^= 0x55;
+        Files.write(f.toPath(), bytes);
+
+        List<Integer> failedChunks = new ArrayList<>();
+        List<Contact> loaded = new ArrayList<>();
+        ChunkedFile.Report report = ChunkedFile.read(f, loaded::addAll, new ChunkedFile.Listener() {
+            @Override
+            public void loaded(int chunk, int chunks, long records, long totalRecords) {
+                assertEquals(contacts.size(), totalRecords);
+            }
+
+            @Override
+            public void failed(int chunk, int chunks, int records, Exception cause) {
+                failedChunks.add(chunk);
+                assertTrue(cause instanceof StreamCorruptedException);
+            }
+        });
+
+        assertEquals(Collections.singletonList(1), failedChunks);
+        assertEquals(1, report.failedChunks);
+        assertEquals(ChunkedFile.CHUNK_SIZE, report.lostRecords);
+        assertEquals(contacts.get(ChunkedFile.CHUNK_SIZE * 2).getId(), loaded.get(ChunkedFile.CHUNK_SIZE).getId());
+        assertThrows(StreamCorruptedException.class, () -> ChunkedFile.readAll(f));
+    }
+
+    @Test
+    void truncatedFile_failsOnlyTheMissingChunks() throws Exception {
+        File f = tempDir.resolve("truncated.db").toFile();
+        ChunkedFile.write(f, book(ChunkedFile.CHUNK_SIZE + 5));
+        byte[] bytes = Files.readAllBytes(f.toPath());
+        Files.write(f.toPath(), Arrays.copyOf(bytes, chunkOffset(bytes, 1) + 10));
+
+        List<Contact> loaded = new ArrayList<>();
+        ChunkedFile.Report report = ChunkedFile.read(f, loaded::addAll, null);
+        assertEquals(1, report.failedChunks);
+        assertEquals(ChunkedFile.CHUNK_SIZE, loaded.size());
+
+        Files.write(f.toPath(), Arrays.copyOf(bytes, 20));
+        assertThrows(IOException.class, () -> ChunkedFile.read(f, chunk -> { }, null));
+    }
+
+    @Test
+    void chunks_areCompressed_wellBelowThePlainList() throws Exception {
+        List<Contact> contacts = new BookGenerator(11).generate(ChunkedFile.CHUNK_SIZE * 2);
+        File chunked = tempDir.resolve("compressed.db").toFile();
+        File plain = tempDir.resolve("plain.db").toFile();
+        ChunkedFile.write(chunked, contacts);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(plain))) {
+            oos.writeObject(new ArrayList<>(contacts));
+        }
+        assertTrue(chunked.length() * 2 < plain.length(), chunked.length() + " vs " + plain.length());
+    }
+
+    @Test
+    void reader_getsARecordOrAPage_byInflatingOneChunk() throws Exception {
+        File f = tempDir.resolve("random.db").toFile();
+        List<Contact> contacts = book(ChunkedFile.CHUNK_SIZE * 3 + 10);
+        ChunkedFile.write(f, contacts);
+
+        try (ChunkedFile.Reader reader = new ChunkedFile.Reader(f)) {
+            assertEquals(contacts.size(), reader.size());
+            assertEquals(4, reader.chunkCount());
+
+            int index = ChunkedFile.CHUNK_SIZE * 2 + 5;
+            assertEquals(contacts.get(index).toFields(), reader.get(index).toFields());
+            assertEquals(1, reader.chunksDecoded());
+
+            List<Contact> page = reader.page(index + 1, 20);
+            assertEquals(20, page.size());
+            assertEquals(contacts.get(index + 1).getId(), page.get(0).getId());
+            assertEquals(1, reader.chunksDecoded());
+
+            page = reader.page(ChunkedFile.CHUNK_SIZE - 5, 10);
+            assertEquals(contacts.get(ChunkedFile.CHUNK_SIZE + 4).getId(), page.get(9).getId());
+            assertEquals(3, reader.chunksDecoded());
+
+            assertEquals(10, reader.page(ChunkedFile.CHUNK_SIZE * 3, 50).size());
+            assertTrue(reader.page(contacts.size(), 5).isEmpty());
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.get(contacts.size()));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.page(-1, 5));
+        }
+    }
+
+    @Test
+    void reader_andLoad_stillReadVersionOneFiles() throws Exception {
+        List<Contact> contacts = book(7);
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(chunk)) {
+            oos.writeObject(new ArrayList<>(contacts));
+        }
+        byte[] bytes = chunk.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+
+        File f = tempDir.resolve("v1.db").toFile();
+        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(f))) {
+            dos.writeInt(ChunkedFile.MAGIC);
+            dos.writeInt(1);
+            dos.writeInt(1);
+            dos.writeInt(contacts.size());
+            dos.writeInt(bytes.length);
+            dos.writeInt((int) crc.getValue());
+            dos.write(bytes);
+        }
+
+        assertEquals(7, App.readContacts(f).size());
+        try (ChunkedFile.Reader reader = new ChunkedFile.Reader(f)) {
+            assertEquals(contacts.get(6).getId(), reader.get(6).getId());
+        }
+    }
+
+    @Test
+    void appLoad_reportsProgressAndDamage_andKeepsTheOriginal() throws Exception {
+        File f = tempDir.resolve("app.db").toFile();
+        List<Contact> contacts = book(ChunkedFile.CHUNK_SIZE * 4);
+        ChunkedFile.write(f, contacts);
+        byte[] bytes = Files.readAllBytes(f.toPath());
+        bytes[chunkOffset(bytes, 2) + 50] ^= 0x55;
+        Files.write(f.toPath(), bytes);
+
+        App.fileName = f.getAbsolutePath();
+        App.load();
+
+        String printed = out.toString();
+        assertTrue(printed.contains("Loading 100% (" + ChunkedFile.CHUNK_SIZE * 3 + " of " + contacts.size()));
+        assertTrue(printed.contains("Chunk 3 of 4 is damaged"));
+        assertTrue(printed.contains(ChunkedFile.CHUNK_SIZE + " records in 1 damaged chunks were skipped."));
+        assertTrue(new File(f.getAbsolutePath() + ".damaged").exists());
+        assertEquals(ChunkedFile.CHUNK_SIZE * 3, App.contacts.size());
+        assertEquals(ChunkedFile.CHUNK_SIZE * 3, App.timeIndex.size());
+    }
+}
@@ -0,0 +1,166 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarStoreTest {
+
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void views_exposeSameFieldsAsHeapContacts() {
+        PersonContact p = new PersonContact("John", "Smith", "1999-12-31", "f", "+1 (234) 567");
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "");
+        ColumnarStore store = ColumnarStore.copyOf(Arrays.asList(p, o));
+
+        Contact pv = store.get(0);
+        Contact ov = store.get(1);
+        for (String field : p.getEditableFields()) {
+            assertEquals(p.getFieldValue(field), pv.getFieldValue(field), field);
+        }
+        for (String field : o.getEditableFields()) {
+            assertEquals(o.getFieldValue(field), ov.getFieldValue(field), field);
+        }
+        assertArrayEquals(p.getEditableFields(), pv.getEditableFields());
+        assertArrayEquals(o.getEditableFields(), ov.getEditableFields());
+        assertEquals(p.getListName(), pv.getListName());
+        assertEquals(o.getListName(), ov.getListName());
+        assertEquals(p.getSearchText(), pv.getSearchText());
+        assertEquals(o.getSearchText(), ov.getSearchText());
+        assertEquals(p.getId(), pv.getId());
+        assertEquals(p.getTimeCreated(), pv.getTimeCreated());
+        assertEquals(p.getTimeLastEdit(), pv.getTimeLastEdit());
+        assertEquals("", ov.getFieldValue("surname"));
+        assertEquals("", pv.getFieldValue("address"));
+    }
+
+    @Test
+    void setField_writesThroughToColumns_andTouchesRow() throws Exception {
+        ColumnarStore store = ColumnarStore.copyOf(Collections.singletonList(
+                new PersonContact("John", "Smith", "1999-12-31", "M", "123")));
+        Contact view = store.get(0);
+        LocalDateTime before = view.getTimeLastEdit();
+        Thread.sleep(2);
+
+        view.setField("name", "Jane");
+        view.setField("gender", "x");       // invalid -> [no data]
+        view.setField("birth", "2001-02-03");
+        view.setField("address", "ignored");
+        view.setField("number", "++1");     // invalid -> cleared
+
+        Contact fresh = store.get(0);
+        assertEquals("Jane", fresh.getFieldValue("name"));
+        assertEquals("[no data]", fresh.getFieldValue("gender"));
+        assertEquals("2001-02-03", fresh.getFieldValue("birth"));
+        assertEquals("[no number]", fresh.getNumberPrintable());
+        assertTrue(fresh.getTimeLastEdit().isAfter(before));
+    }
+
+    @Test
+    void addRemove_keepOrder_andViewsFollowTheirRow() {
+        ColumnarStore store = new ColumnarStore(1);
+        for (int i = 0; i < 5; i++) {
+            store.add(new OrganizationContact("Org" + i, "Addr", "12" + i));
+        }
+        Contact last = store.get(4);
+
+        Contact removed = store.remove(1);
+        assertEquals("Org1", removed.getListName());
+        assertEquals(4, store.size());
+        assertEquals("Org4", last.getListName()); // row moved from 4 to 3
+
+        store.add(0, new PersonContact("A", "B", "2000-01-01", "M", "555"));
+        assertEquals("A B", store.get(0).getListName());
+        assertEquals("Org0", store.get(1).getListName());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(5));
+
+        store.remove(store.size() - 1);
+        assertThrows(IllegalStateException.class, last::getListName);
+    }
+
+    @Test
+    void removeIf_compactsInOnePass() {
+        ColumnarStore store = new ColumnarStore();
+        for (int i = 0; i < 10; i++) {
+            store.add(new OrganizationContact("Org" + i, "Addr", "12" + i));
+        }
+        assertFalse(store.removeIf(c -> false));
+        assertTrue(store.removeIf(c -> c.getListName().compareTo("Org5") < 0 && !"Org2".equals(c.getListName())));
+
+        List<String> names = new ArrayList<>();
+        for (Contact c : store) {
+            names.add(c.getListName());
+        }
+        assertEquals(Arrays.asList("Org2", "Org5", "Org6", "Org7", "Org8", "Org9"), names);
+    }
+
+    @Test
+    void search_matchesLikeSearchText() {
+        List<Contact> heap = Arrays.asList(
+                new PersonContact("John", "Smith", "1999-12-31", "M", "123"),
+                new OrganizationContact("Acme", "Delhi", "999"),
+                new PersonContact("Jane", "Doe", "", "", ""));
+        ColumnarStore store = ColumnarStore.copyOf(heap);
+
+        for (String q : new String[]{"j", "SMITH", "no data", "no number", "9+", "smith m"}) {
+            Pattern pattern = Pattern.compile(q, Pattern.CASE_INSENSITIVE);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < heap.size(); i++) {
+                if (pattern.matcher(heap.get(i).getSearchText()).find()) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected, store.search(pattern), q);
+        }
+    }
+
+    @Test
+    void serializes_asPlainContacts() throws Exception {
+        ColumnarStore store = ColumnarStore.copyOf(Arrays.asList(
+                new PersonContact("John", "Smith", "1999-12-31", "M", "123"),
+                new OrganizationContact("Acme", "Delhi", "999")));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(store);
+            oos.writeObject(store.get(1));
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            @SuppressWarnings("unchecked")
+            List<Contact> list = (List<Contact>) ois.readObject();
+            Contact single = (Contact) ois.readObject();
+
+            assertTrue(list instanceof ArrayList);
+            assertTrue(list.get(0) instanceof PersonContact);
+            assertEquals("John Smith", list.get(0).getListName());
+            assertEquals(store.get(0).getTimeCreated(), list.get(0).getTimeCreated());
+            assertTrue(single instanceof OrganizationContact);
+            assertEquals(store.get(1).getId(), single.getId());
+        }
+    }
+
+    @Test
+    void packUnpack_roundTrips() {
+        LocalDateTime t = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 123_456_789);
+        assertEquals(t, ColumnarStore.unpack(ColumnarStore.pack(t)));
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(now, ColumnarStore.unpack(ColumnarStore.pack(now)));
+    }
+}
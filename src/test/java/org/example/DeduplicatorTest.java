@@ -0,0 +1,123 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeduplicatorTest {
+
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void soundex_and_normalizeNumber() {
+        assertEquals("R163", Deduplicator.soundex("Robert"));
+        assertEquals("R163", Deduplicator.soundex("Rupert"));
+        assertEquals("A261", Deduplicator.soundex("Ashcraft"));
+        assertEquals("P236", Deduplicator.soundex("Pfister"));
+        assertEquals("T522", Deduplicator.soundex("Tymczak"));
+        assertEquals("S530", Deduplicator.soundex("smith"));
+        assertEquals("", Deduplicator.soundex("123"));
+        assertEquals("", Deduplicator.soundex(null));
+
+        assertEquals("0123456", Deduplicator.normalizeNumber("+0 (123) 456"));
+        assertEquals("a1b2", Deduplicator.normalizeNumber("A1-b2"));
+        assertEquals("", Deduplicator.normalizeNumber(null));
+    }
+
+    @Test
+    void jaroWinkler_knownValues() {
+        assertEquals(1.0, Deduplicator.jaroWinkler("abc", "abc"));
+        assertEquals(0.0, Deduplicator.jaroWinkler("", "abc"));
+        assertEquals(0.0, Deduplicator.jaroWinkler("abc", "xyz"));
+        assertEquals(0.961, Deduplicator.jaroWinkler("martha", "marhta"), 0.001);
+        assertEquals(0.840, Deduplicator.jaroWinkler("dwayne", "duane"), 0.001);
+    }
+
+    @Test
+    void findCandidates_matchesByNumberOrPhoneticName_only() {
+        PersonContact john = new PersonContact("John", "Smith", "1999-12-31", "M", "+1 (555) 123");
+        PersonContact jon = new PersonContact("Jon", "Smith", "", "M", "1 555 123");
+        PersonContact jonDifferent = new PersonContact("Jon", "Smyth", "1980-01-01", "F", "999");
+        PersonContact stranger = new PersonContact("Alice", "Brown", "1990-05-05", "F", "777");
+        OrganizationContact org = new OrganizationContact("John Smith", "Delhi", "1 555 123");
+
+        List<Deduplicator.Candidate> found = Deduplicator.findCandidates(
+                Arrays.asList(john, jon, jonDifferent, stranger, org), Deduplicator.DEFAULT_THRESHOLD);
+
+        assertEquals(1, found.size());
+        Deduplicator.Candidate c = found.get(0);
+        assertEquals(new HashSet<>(Arrays.asList(john, jon)), new HashSet<>(Arrays.asList(c.first, c.second)));
+        assertTrue(c.score >= Deduplicator.AUTO_MERGE_THRESHOLD);
+        assertTrue(c.toString().contains("<->"));
+        assertEquals(0, Deduplicator.score(john, org));
+    }
+
+    @Test
+    void household_sharingALandline_isOfferedButNeverAutoMerged() {
+        PersonContact john = new PersonContact("John", "Smith", "", "", "555 123 4567");
+        PersonContact jane = new PersonContact("Jane", "Smith", "", "", "5551234567");
+        PersonContact mark = new PersonContact("Mark", "Smith", "", "", "555-123-4567");
+        PersonContact johnAgain = new PersonContact("Jon", "Smith", "", "", "(555) 123-4567");
+
+        List<Deduplicator.Candidate> found = Deduplicator.findCandidates(
+                Arrays.asList(john, jane, mark, johnAgain), Deduplicator.DEFAULT_THRESHOLD);
+        assertEquals(6, found.size());
+        Deduplicator.Candidate best = found.get(0);
+        assertEquals(new HashSet<>(Arrays.asList(john, johnAgain)), new HashSet<>(Arrays.asList(best.first, best.second)));
+        assertTrue(best.score >= Deduplicator.AUTO_MERGE_THRESHOLD);
+        for (Deduplicator.Candidate c : found.subList(1, found.size())) {
+            assertTrue(c.score < Deduplicator.AUTO_MERGE_THRESHOLD, c.toString());
+        }
+        assertTrue(Deduplicator.score(john, jane) < Deduplicator.AUTO_MERGE_THRESHOLD);
+        assertTrue(Deduplicator.score(jane, mark) < Deduplicator.AUTO_MERGE_THRESHOLD);
+    }
+
+    @Test
+    void organizations_areComparedWithEachOther() {
+        OrganizationContact a = new OrganizationContact("Acme Ltd", "Delhi", "999");
+        OrganizationContact b = new OrganizationContact("Acme Ltd.", "Delhi", "9-99");
+        List<Deduplicator.Candidate> found = Deduplicator.findCandidates(Arrays.asList(a, b), 0.5);
+        assertEquals(1, found.size());
+    }
+
+    @Test
+    void bigBlocks_areComparedInsideTheWindowOnly() {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            contacts.add(new PersonContact("Smith", "Smith", "", "", "12 " + i));
+        }
+        List<Deduplicator.Candidate> found = Deduplicator.findCandidates(contacts, 0);
+        assertTrue(found.size() <= 200 * Deduplicator.WINDOW);
+        assertFalse(found.isEmpty());
+    }
+
+    @Test
+    void merge_fillsGaps_andSurvivorPrefersCompleteRecord() {
+        PersonContact sparse = new PersonContact("Jon", "Smith", "", "", "123");
+        PersonContact full = new PersonContact("John", "Smith", "1999-12-31", "M", "");
+
+        assertSame(full, Deduplicator.survivor(sparse, full));
+        PersonContact older = new PersonContact("A", "B", "", "", "1");
+        PersonContact newer = new PersonContact("A", "B", "", "", "1");
+        assertSame(older, Deduplicator.survivor(newer, older));
+
+        Map<String, String> changed = Deduplicator.merge(full, sparse);
+        assertEquals(Collections.singletonMap("number", ""), changed);
+        assertEquals("John", full.getFieldValue("name"));
+        assertEquals("123", full.getNumberPrintable());
+    }
+}
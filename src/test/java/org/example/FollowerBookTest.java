@@ -0,0 +1,227 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FollowerBookTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void refresh_keepsUnchangedContacts_andPicksUpEdits() throws Exception {
+        File f = tempDir.resolve("book.db").toFile();
+        OrganizationContact a = new OrganizationContact("Acme", "Delhi", "999");
+        OrganizationContact b = new OrganizationContact("Beta", "Pune", "111");
+        write(f, a, b);
+
+        FollowerBook follower = new FollowerBook(f.getPath(), null);
+        follower.refreshAll();
+        assertEquals(2, follower.contacts().size());
+        Contact keptB = follower.get(b.getId());
+        List<Contact> before = follower.contacts();
+
+        Thread.sleep(2);
+        a.setAddress("Mumbai");
+        OrganizationContact c = new OrganizationContact("Gamma", "Goa", "222");
+        write(f, a, c); // b removed, c added, a edited
+
+        assertTrue(follower.refresh(0));
+        assertEquals(2, follower.contacts().size());
+        assertNull(follower.get(b.getId()));
+        assertEquals("Mumbai", follower.get(a.getId()).getFieldValue("address"));
+        assertEquals(2, before.size()); // the old snapshot is untouched
+        assertSame(keptB, before.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> follower.contacts().clear());
+    }
+
+    @Test
+    void refresh_withHalfWrittenFile_keepsPreviousSnapshot() throws Exception {
+        File f = tempDir.resolve("partial.db").toFile();
+        write(f, new OrganizationContact("Acme", "Delhi", "999"));
+        FollowerBook follower = new FollowerBook(f.getPath(), null);
+        follower.refreshAll();
+        long refreshes = follower.refreshes();
+
+        try (FileOutputStream fos = new FileOutputStream(f)) {
+            fos.write(new byte[]{(byte) 0xAC, (byte) 0xED});
+        }
+        assertFalse(follower.refresh(0));
+        assertEquals(1, follower.contacts().size());
+        assertEquals(refreshes, follower.refreshes());
+    }
+
+    @Test
+    void chunkedBook_decodesOnlyChangedChunks_andKeepsBirthdaysInStep() throws Exception {
+        File f = tempDir.resolve("chunked.db").toFile();
+        List<Contact> book = new BookGenerator(4, 1.0, BookGenerator.NumberFormat.PLAIN)
+                .generate(ChunkedFile.CHUNK_SIZE * 3);
+        ChunkedFile.write(f, book);
+
+        FollowerBook follower = new FollowerBook(f.getPath(), null);
+        follower.refreshAll();
+        assertEquals(3, follower.chunksDecoded());
+        Contact first = follower.contacts().get(0);
+
+        Contact edited = book.stream().skip(ChunkedFile.CHUNK_SIZE)
+                .filter(c -> c.getBirthDay() != PersonContact.NO_BIRTH_DAY
+                        && LocalDate.ofEpochDay(c.getBirthDay()).getMonth() != Month.MARCH)
+                .findFirst().orElseThrow(IllegalStateException::new);
+        LocalDate march10 = LocalDate.of(2024, 3, 10);
+        assertFalse(ids(follower.birthdays().upcoming(march10, 0)).contains(edited.getId()));
+        assertEquals(book.size(), follower.timeIndex().size());
+        LocalDateTime sync = LocalDateTime.now();
+        Thread.sleep(2);
+        edited.setField("birth", "1990-03-10");
+        ChunkedFile.write(f, book);
+
+        assertTrue(follower.refresh(0));
+        assertEquals(4, follower.chunksDecoded());
+        assertSame(first, follower.contacts().get(0));
+        assertTrue(ids(follower.birthdays().upcoming(march10, 0)).contains(edited.getId()));
+        assertEquals(Collections.singleton(edited.getId()),
+                ids(follower.timeIndex().editedSince(sync).collect(Collectors.toList())));
+        assertEquals(book.size(), follower.timeIndex().size());
+        assertEquals("1990-03-10", follower.get(edited.getId()).getFieldValue("birth"));
+
+        book.add(new PersonContact("New", "Person", "1990-03-10", "F", "1"));
+        ChunkedFile.write(f, book);
+        assertTrue(follower.refresh(0));
+        assertEquals(5, follower.chunksDecoded());
+        assertEquals(book.size(), follower.contacts().size());
+        assertEquals(book.get(book.size() - 1).getId(), follower.contacts().get(book.size() - 1).getId());
+    }
+
+    @Test
+    void damagedChunk_isLeftOutAndReported_untilTheWriterFixesIt() throws Exception {
+        File f = tempDir.resolve("damaged.db").toFile();
+        List<Contact> book = new BookGenerator(6).generate(ChunkedFile.CHUNK_SIZE * 3);
+        ChunkedFile.write(f, book);
+        byte[] good = Files.readAllBytes(f.toPath());
+        byte[] bad = good.clone();
+        bad[ChunkedFileTest.chunkOffset(bad, 1) + 40] ^= 0x55;
+        Files.write(f.toPath(), bad);
+
+        FollowerBook follower = new FollowerBook(f.getPath(), null);
+        follower.refreshAll();
+        assertEquals(ChunkedFile.CHUNK_SIZE * 2, follower.contacts().size());
+        assertTrue(follower.damage().contains("chunk 2 (checksum mismatch) of 3 is damaged"), follower.damage());
+        Contact third = book.get(ChunkedFile.CHUNK_SIZE * 2);
+        assertEquals(third.getId(), follower.contacts().get(ChunkedFile.CHUNK_SIZE).getId()); // past the gap
+        assertEquals(third.toFields(), follower.get(third.getId()).toFields());
+        assertNull(follower.get(book.get(ChunkedFile.CHUNK_SIZE).getId()));
+        assertFalse(follower.refresh(0)); // a strict refresh waits for the writer
+
+        Files.write(f.toPath(), good);
+        assertTrue(follower.refresh(0));
+        assertNull(follower.damage());
+        assertEquals(book.size(), follower.contacts().size());
+        assertEquals(5, follower.chunksDecoded()); // 3, then only the damaged chunk each time
+    }
+
+    @Test
+    void watcher_picksUpChangedSegments() throws Exception {
+        String file = tempDir.resolve("sharded.db").toString();
+        ShardedStore primary = new ShardedStore(file, 2);
+        List<Contact> contacts = new ArrayList<>();
+        contacts.add(new OrganizationContact("Acme", "Delhi", "999"));
+        primary.saveAll(contacts);
+
+        try (FollowerBook follower = new FollowerBook(file, new ShardedStore(file, 2))) {
+            follower.refreshAll();
+            follower.start();
+            assertEquals(1, follower.contacts().size());
+
+            Contact added = new OrganizationContact("Beta", "Pune", "111");
+            contacts.add(added);
+            primary.markDirty(added);
+            primary.save(contacts);
+
+            assertTrue(waitFor(() -> follower.get(added.getId()) != null));
+            assertEquals(2, follower.contacts().size());
+        }
+    }
+
+    @Test
+    void publish_sharesUnchangedChunks_mergesSegments_andSortsForeignFiles() throws Exception {
+        File f = tempDir.resolve("shared.db").toFile();
+        List<Contact> book = new BookGenerator(8).generate(ChunkedFile.CHUNK_SIZE * 2);
+        ChunkedFile.write(f, book);
+        FollowerBook follower = new FollowerBook(f.getPath(), null);
+        follower.refreshAll();
+        List<Contact> before = follower.contacts();
+        book.get(0).setField("number", "12345");
+        ChunkedFile.write(f, book);
+        assertTrue(follower.refresh(0));
+        assertSame(before.get(ChunkedFile.CHUNK_SIZE), follower.contacts().get(ChunkedFile.CHUNK_SIZE));
+        assertEquals("12345", follower.contacts().get(0).getFieldValue("number"));
+        assertThrows(IndexOutOfBoundsException.class, () -> follower.contacts().get(book.size()));
+
+        String sharded = tempDir.resolve("merged.db").toString();
+        new ShardedStore(sharded, 3).saveAll(book);
+        FollowerBook merged = new FollowerBook(sharded, new ShardedStore(sharded, 3));
+        merged.refreshAll();
+        assertEquals(book.size(), merged.contacts().size());
+        for (int i = 0; i < book.size(); i++) {
+            assertEquals(book.get(i).getId(), merged.contacts().get(i).getId());
+        }
+        assertEquals(book.get(77).toFields(), merged.get(book.get(77).getId()).toFields());
+
+        // a file some other writer did not keep in id order
+        File foreign = tempDir.resolve("foreign.db").toFile();
+        OrganizationContact a = new OrganizationContact("Acme", "Delhi", "999");
+        OrganizationContact b = new OrganizationContact("Beta", "Pune", "111");
+        write(foreign, b, a);
+        FollowerBook sorted = new FollowerBook(foreign.getPath(), null);
+        sorted.refreshAll();
+        assertEquals(a.getId(), sorted.contacts().get(0).getId());
+        assertEquals("Beta", sorted.get(b.getId()).getListName());
+        assertNull(sorted.get(-1));
+    }
+
+    private static Set<Long> ids(List<Contact> contacts) {
+        Set<Long> ids = new HashSet<>();
+        contacts.forEach(c -> ids.add(c.getId()));
+        return ids;
+    }
+
+    private static void write(File f, Contact... contacts) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(f))) {
+            oos.writeObject(new ArrayList<>(Arrays.asList(contacts)));
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void saveAll_then_load_roundTrip_acrossSegments() {
+        String file = tempDir.resolve("book.db").toString();
+        ShardedStore store = new ShardedStore(file, 4);
+
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            contacts.add(new PersonContact("N" + i, "S" + i, "2000-01-01", "M", "12" + i));
+        }
+        store.saveAll(contacts);
+
+        for (int s = 0; s < 4; s++) {
+            assertTrue(store.segmentFile(s).exists());
+        }
+
+        List<Contact> loaded = new ShardedStore(file, 4).load();
+        assertEquals(20, loaded.size());
+        Set<Long> ids = new HashSet<>();
+        for (Contact c : loaded) {
+            ids.add(c.getId());
+        }
+        for (Contact c : contacts) {
+            assertTrue(ids.contains(c.getId()));
+        }
+    }
+
+    @Test
+    void save_writesOnlyDirtySegments() {
+        String file = tempDir.resolve("dirty.db").toString();
+        ShardedStore store = new ShardedStore(file, 3);
+
+        Contact c = new OrganizationContact("Acme", "Delhi", "999");
+        List<Contact> contacts = new ArrayList<>(Collections.singletonList(c));
+
+        store.save(contacts); // nothing dirty yet
+        for (int s = 0; s < 3; s++) {
+            assertFalse(store.segmentFile(s).exists());
+        }
+
+        store.markDirty(c);
+        assertTrue(store.isDirty(store.shardOf(c)));
+        store.save(contacts);
+
+        assertFalse(store.isDirty(store.shardOf(c)));
+        for (int s = 0; s < 3; s++) {
+            assertEquals(s == store.shardOf(c), store.segmentFile(s).exists());
+        }
+    }
+
+    @Test
+    void load_withFewerShards_foldsInAndRemovesStaleSegments() {
+        String file = tempDir.resolve("resize.db").toString();
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            contacts.add(new OrganizationContact("Org" + i, "Addr", "99" + i));
+        }
+        new ShardedStore(file, 5).saveAll(contacts);
+
+        ShardedStore smaller = new ShardedStore(file, 2);
+        List<Contact> loaded = smaller.load();
+        assertEquals(10, loaded.size());
+
+        smaller.save(loaded);
+        assertFalse(smaller.segmentFile(4).exists());
+        assertEquals(10, new ShardedStore(file, 2).load().size());
+    }
+
+    @Test
+    void load_findsSegmentsPastAGap_andReturnsThemInIdOrder() {
+        String file = tempDir.resolve("gap.db").toString();
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            contacts.add(new OrganizationContact("Org" + i, "Addr", "99" + i));
+        }
+        ShardedStore wide = new ShardedStore(file, 6);
+        wide.saveAll(contacts);
+        assertTrue(wide.segmentFile(4).delete());
+        int lost = 0;
+        for (Contact c : contacts) {
+            if (wide.shardOf(c) == 4) lost++;
+        }
+
+        List<Contact> loaded = new ShardedStore(file, 2).load();
+        assertEquals(12 - lost, loaded.size());
+        for (int i = 1; i < loaded.size(); i++) {
+            assertTrue(loaded.get(i - 1).getId() < loaded.get(i).getId());
+        }
+        assertTrue(loaded.stream().anyMatch(c -> wide.shardOf(c) == 5));
+    }
+
+    @Test
+    void load_withoutSegments_migratesTheSingleFile() throws Exception {
+        File file = tempDir.resolve("single.db").toFile();
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            contacts.add(new PersonContact("N" + i, "S" + i, "2000-01-01", "F", "12" + i));
+        }
+        App.writeContacts(file, contacts);
+
+        ShardedStore store = new ShardedStore(file.getPath(), 3);
+        List<Contact> loaded = store.load();
+        assertEquals(7, loaded.size());
+        assertEquals(contacts.get(6).getId(), loaded.get(6).getId());
+        for (int s = 0; s < 3; s++) {
+            assertTrue(store.isDirty(s));
+        }
+
+        store.save(loaded);
+        assertTrue(store.segmentFile(0).exists());
+        assertEquals(7, new ShardedStore(file.getPath(), 3).load().size());
+        assertTrue(new ShardedStore(tempDir.resolve("none.db").toString(), 3).load().isEmpty());
+    }
+
+    @Test
+    void load_withCorruptSegment_keepsOtherSegments_andNeverOverwritesIt() throws IOException {
+        String file = tempDir.resolve("corrupt.db").toString();
+        ShardedStore store = new ShardedStore(file, 2);
+
+        Contact c = new OrganizationContact("Acme", "Delhi", "999");
+        store.saveAll(Collections.singletonList(c));
+        int bad = 1 - store.shardOf(c);
+        try (FileOutputStream fos = new FileOutputStream(store.segmentFile(bad))) {
+            fos.write(new byte[]{1, 2, 3});
+        }
+
+        List<Contact> loaded = store.load();
+        assertEquals(1, loaded.size());
+        assertEquals(c.getId(), loaded.get(0).getId());
+        assertEquals(Collections.singleton(store.segmentFile(bad)), store.loadFailures().keySet());
+
+        // an add that belongs in the damaged segment is held back with it
+        Contact added = new OrganizationContact("Globex", "Delhi", "998");
+        while (store.shardOf(added) != bad) {
+            added = new OrganizationContact("Globex", "Delhi", "998");
+        }
+        loaded.add(added);
+        store.markDirty(added);
+        store.markDirty(c);
+        store.save(loaded);
+        assertEquals(3, store.segmentFile(bad).length());
+        assertTrue(store.isDirty(bad));
+        assertFalse(store.isDirty(store.shardOf(c)));
+
+        // once it reads again, the next load starts clean
+        store.saveAll(loaded);
+        assertEquals(3, store.segmentFile(bad).length());
+        assertTrue(new File(file + ".seg" + bad).delete());
+        assertEquals(1, store.load().size());
+        assertTrue(store.loadFailures().isEmpty());
+    }
+
+    @Test
+    void load_withUnreadableSingleFile_reportsIt_andWritesNoSegments() throws IOException {
+        File file = tempDir.resolve("broken.db").toFile();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(new byte[]{1, 2, 3, 4, 5});
+        }
+
+        ShardedStore store = new ShardedStore(file.getPath(), 2);
+        assertTrue(store.load().isEmpty());
+        assertEquals(Collections.singleton(file), store.loadFailures().keySet());
+
+        Contact c = new OrganizationContact("Acme", "Delhi", "999");
+        store.markDirty(c);
+        store.saveAll(Collections.singletonList(c));
+        assertFalse(store.segmentFile(0).exists());
+        assertFalse(store.segmentFile(1).exists());
+        assertEquals(5, file.length());
+    }
+
+    @Test
+    void search_fansOut_andKeepsListOrder() {
+        ShardedStore store = new ShardedStore(tempDir.resolve("s.db").toString(), 4);
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            contacts.add(new OrganizationContact(i % 2 == 0 ? "Even" + i : "Odd" + i, "Addr", "123"));
+        }
+
+        List<Integer> hits = store.search(contacts, Pattern.compile("even", Pattern.CASE_INSENSITIVE));
+        assertEquals(Arrays.asList(0, 2, 4, 6, 8), hits);
+        assertTrue(store.search(new ArrayList<>(), Pattern.compile("x")).isEmpty());
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveShardCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedStore("x", 0));
+    }
+}
@@ -0,0 +1,132 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeIndexTest {
+
+    private PrintStream originalOut;
+    private final Map<Long, Contact> book = new HashMap<>();
+    private TimeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        index = new TimeIndex(book::get);
+        Contact.addTouchListener(index);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Contact.removeTouchListener(index);
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void createdBetween_streamsInCreationOrder() throws Exception {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            contacts.add(new OrganizationContact("Org" + i, "Addr", "12" + i));
+            Thread.sleep(2);
+        }
+        contacts.forEach(c -> book.put(c.getId(), c));
+        Collections.reverse(contacts);
+        index.rebuild(contacts);
+        Collections.reverse(contacts);
+
+        assertEquals(contacts, index.createdSince(LocalDateTime.MIN).collect(Collectors.toList()));
+        assertEquals(contacts.subList(1, 3), index.createdBetween(
+                contacts.get(1).getTimeCreated(), contacts.get(3).getTimeCreated()).collect(Collectors.toList()));
+        assertEquals(0, index.createdBetween(LocalDateTime.MAX, LocalDateTime.MIN).count());
+    }
+
+    @Test
+    void touch_movesContactToEndOfEditIndex() throws Exception {
+        PersonContact a = new PersonContact("A", "A", "2000-01-01", "M", "123");
+        PersonContact b = new PersonContact("B", "B", "2000-01-01", "F", "456");
+        book.put(a.getId(), a);
+        book.put(b.getId(), b);
+        index.add(a);
+        index.add(b);
+        Thread.sleep(2);
+        LocalDateTime sync = LocalDateTime.now();
+
+        assertEquals(0, index.editedSince(sync).count());
+
+        Thread.sleep(2);
+        a.setField("name", "Alice");
+        assertEquals(Collections.singletonList(a), index.editedSince(sync).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(b, a), index.editedSince(LocalDateTime.MIN).collect(Collectors.toList()));
+        assertEquals(Collections.singletonList(b),
+                index.editedBetween(LocalDateTime.MIN, sync).collect(Collectors.toList()));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void remove_and_unindexedTouches_areIgnored() {
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "999");
+        OrganizationContact other = new OrganizationContact("Other", "X", "111");
+        index.add(o);
+        index.remove(o);
+        other.setName("Still not indexed");
+
+        assertEquals(0, index.size());
+        assertEquals(0, index.editedSince(LocalDateTime.MIN).count());
+    }
+
+    @Test
+    void entriesOfContactsNoLongerInTheBook_areSkipped() {
+        OrganizationContact kept = new OrganizationContact("Kept", "X", "1");
+        OrganizationContact gone = new OrganizationContact("Gone", "Y", "2");
+        book.put(kept.getId(), kept);
+        index.rebuild(Arrays.asList(kept, gone));
+
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList(kept), index.createdSince(LocalDateTime.MIN).collect(Collectors.toList()));
+    }
+
+    @Test
+    void touchesOfAnotherBooksContactWithTheSameId_areIgnored() throws Exception {
+        OrganizationContact mine = new OrganizationContact("Mine", "X", "1");
+        OrganizationContact theirs = new OrganizationContact(mine.getId(), "Theirs", "Y", "2",
+                mine.getTimeCreated(), mine.getTimeLastEdit());
+        book.put(mine.getId(), mine);
+        index.add(mine);
+        Thread.sleep(2);
+        LocalDateTime sync = LocalDateTime.now();
+        Thread.sleep(2);
+
+        theirs.setName("Edited in the other book");
+        assertEquals(0, index.editedSince(sync).count());
+        mine.setName("Edited here");
+        assertEquals(Collections.singletonList(mine), index.editedSince(sync).collect(Collectors.toList()));
+    }
+
+    @Test
+    void columnarViews_areReindexedOnTouch() throws Exception {
+        ColumnarStore store = ColumnarStore.copyOf(Collections.singletonList(
+                new OrganizationContact("Acme", "Delhi", "999")));
+        Contact.removeTouchListener(index);
+        index = new TimeIndex(id -> {
+            int row = store.indexOfId(id);
+            return row < 0 ? null : store.get(row);
+        });
+        Contact.addTouchListener(index);
+        index.rebuild(store);
+        Thread.sleep(2);
+        LocalDateTime sync = LocalDateTime.now();
+        Thread.sleep(2);
+
+        store.get(0).setField("address", "Mumbai");
+        List<Contact> edited = index.editedSince(sync).collect(Collectors.toList());
+        assertEquals(1, edited.size());
+        assertEquals("Mumbai", edited.get(0).getFieldValue("address"));
+    }
+}
@@ -0,0 +1,170 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionedBookTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void pinnedSnapshot_doesNotSeeLaterWrites() {
+        VersionedBook book = new VersionedBook();
+        PersonContact p = new PersonContact("John", "Smith", "1999-12-31", "M", "123");
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "999");
+        book.put(p);
+        book.put(o);
+
+        try (VersionedBook.Snapshot before = book.pin()) {
+            p.setName("Jane");
+            book.put(p);
+            book.remove(o.getId());
+
+            assertEquals(2, before.size());
+            assertEquals("John Smith", before.get(p.getId()).getListName());
+            assertNotNull(before.get(o.getId()));
+
+            try (VersionedBook.Snapshot after = book.pin()) {
+                assertEquals(1, after.size());
+                assertEquals("Jane Smith", after.get(p.getId()).getListName());
+                assertNull(after.get(o.getId()));
+                assertTrue(after.version > before.version);
+                assertEquals(2, book.activePins());
+                assertEquals(before.version, book.oldestPinnedVersion());
+            }
+        }
+        assertEquals(0, book.activePins());
+        assertEquals(-1, book.oldestPinnedVersion());
+    }
+
+    @Test
+    void versions_areImmutableCopies() {
+        VersionedBook book = new VersionedBook();
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "999");
+        book.put(o);
+
+        try (VersionedBook.Snapshot s = book.pin()) {
+            VersionedBook.ContactVersion v = s.get(o.getId());
+            o.setName("Changed in place");
+            assertEquals("Acme", v.getListName());
+            assertThrows(UnsupportedOperationException.class, () -> v.fields.put("name", "x"));
+
+            Contact copy = v.toContact();
+            copy.setField("name", "Copy");
+            assertEquals("Acme", s.get(o.getId()).getListName());
+            assertEquals("organization", v.getType());
+        }
+    }
+
+    @Test
+    void reset_andManyWrites_keepIdOrder() {
+        VersionedBook book = new VersionedBook();
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            contacts.add(new OrganizationContact("Org" + i, "Addr", "12" + i));
+        }
+        List<Contact> shuffled = new ArrayList<>(contacts);
+        Collections.shuffle(shuffled, new Random(7));
+        book.reset(shuffled);
+
+        for (int i = 0; i < 500; i += 3) {
+            book.remove(contacts.get(i).getId());
+        }
+        book.put(contacts.get(0));
+
+        try (VersionedBook.Snapshot s = book.pin()) {
+            List<Long> ids = s.stream().map(v -> v.id).collect(Collectors.toList());
+            List<Long> sorted = new ArrayList<>(ids);
+            Collections.sort(sorted);
+            assertEquals(sorted, ids);
+            assertEquals(500 - 167 + 1, s.size());
+            assertEquals(1, s.search(Pattern.compile("^org499 ")).size());
+        }
+    }
+
+    @Test
+    void readers_neverSeePartialEdits_whileWriterRuns() throws Exception {
+        VersionedBook book = new VersionedBook();
+        PersonContact p = new PersonContact("A0", "A0", "", "", "1");
+        book.put(p);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 1; i <= 2000; i++) {
+                // an "edit" of two fields that must only be seen together
+                p.setName("A" + i);
+                p.setSurname("A" + i);
+                book.put(p);
+            }
+        });
+        while (!writer.isDone()) {
+            try (VersionedBook.Snapshot s = book.pin()) {
+                VersionedBook.ContactVersion v = s.get(p.getId());
+                assertEquals(v.fields.get("name"), v.fields.get("surname"));
+            }
+        }
+        writer.get();
+        pool.shutdown();
+    }
+
+    @Test
+    void searchText_matchesTheContacts_andToContactsCopiesOnRead() {
+        VersionedBook book = new VersionedBook();
+        List<Contact> contacts = Arrays.asList(
+                new PersonContact("John", "Smith", "1999-12-31", "M", "123"),
+                new PersonContact("Ann", "Lee", "", "", ""),
+                new OrganizationContact("Acme", "Delhi", "999"),
+                ColumnarStore.copyOf(Collections.singletonList(new OrganizationContact("Beta", "Pune", ""))).get(0));
+        book.putAll(contacts);
+
+        try (VersionedBook.Snapshot s = book.pin()) {
+            for (Contact c : contacts) {
+                assertEquals(c.getSearchText(), s.get(c.getId()).getSearchText());
+            }
+            List<Contact> copies = s.toContacts();
+            assertEquals(4, copies.size());
+            assertNotSame(copies.get(0), copies.get(0));
+            assertEquals(contacts.get(2).toFields(), copies.get(2).toFields());
+        }
+    }
+
+    @Test
+    void writeTo_exportsSnapshotInFileFormat() throws Exception {
+        VersionedBook book = new VersionedBook();
+        OrganizationContact o = new OrganizationContact("Acme", "Delhi", "999");
+        book.put(o);
+        File f = tempDir.resolve("export.db").toFile();
+
+        try (VersionedBook.Snapshot s = book.pin()) {
+            book.remove(o.getId());
+            s.writeTo(f);
+        }
+        List<Contact> loaded = App.readContacts(f);
+        assertEquals(1, loaded.size());
+        assertEquals(o.getId(), loaded.get(0).getId());
+        assertEquals(o.getTimeCreated(), loaded.get(0).getTimeCreated());
+    }
+}
@@ -0,0 +1,107 @@
+package org.example;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadDriverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PrintStream originalOut;
+    private ByteArrayOutputStream out;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        App.contacts = new ArrayList<>();
+        App.fileName = null;
+        App.store = null;
+        App.follower = null;
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+        App.contacts = new ArrayList<>();
+        App.rebuildIndexes();
+    }
+
+    @Test
+    void run_appliesTheMix_andKeepsIndexesInStep() {
+        BookGenerator generator = new BookGenerator(5);
+        App.contacts = generator.generate(200);
+        App.rebuildIndexes();
+
+        WorkloadDriver.Report report = new WorkloadDriver(generator, 5)
+                .run(1000, 0, new WorkloadDriver.Mix(50, 20, 20, 10));
+
+        assertEquals(1000, report.operations());
+        int total = 0;
+        for (WorkloadDriver.Latencies l : report.latencies.values()) {
+            total += l.count();
+            assertTrue(l.count() > 0);
+            assertTrue(l.percentile(50) <= l.percentile(99));
+            assertTrue(l.percentile(99) <= l.percentile(100));
+        }
+        assertEquals(1000, total);
+        int adds = report.latencies.get(WorkloadDriver.Operation.ADD).count();
+        int deletes = report.latencies.get(WorkloadDriver.Operation.DELETE).count();
+        assertEquals(200 + adds - deletes, App.contacts.size());
+        assertEquals(App.contacts.size(), App.timeIndex.size());
+        assertTrue(report.toString().contains("p99.9 ms"));
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    void run_keepsToTheTargetRate_andTurnsEditsOnEmptyBookIntoAdds() {
+        WorkloadDriver.Report report = new WorkloadDriver(new BookGenerator(9), 9)
+                .run(50, 500, new WorkloadDriver.Mix(0, 0, 1, 1));
+
+        assertEquals(50, report.latencies.get(WorkloadDriver.Operation.ADD).count()
+                + report.latencies.get(WorkloadDriver.Operation.EDIT).count()
+                + report.latencies.get(WorkloadDriver.Operation.DELETE).count());
+        assertTrue(report.latencies.get(WorkloadDriver.Operation.ADD).count() > 0);
+        assertTrue(report.elapsedNanos >= 90_000_000L, "elapsed " + report.elapsedNanos);
+        assertTrue(report.throughput() <= 600);
+        assertTrue(report.toString().contains("target 500 ops/s"));
+    }
+
+    @Test
+    void percentile_usesNearestRank() {
+        WorkloadDriver.Latencies l = new WorkloadDriver.Latencies();
+        assertEquals(0, l.percentile(50));
+        for (int i = 1000; i >= 1; i--) {
+            l.record(i);
+        }
+        assertEquals(500, l.percentile(50));
+        assertEquals(990, l.percentile(99));
+        assertEquals(999, l.percentile(99.9));
+        assertEquals(1000, l.percentile(100));
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadDriver.Mix(0, 0, 0, 0));
+    }
+
+    @Test
+    void main_writesTheBook_andPrintsTheReport() throws Exception {
+        File f = tempDir.resolve("generated.db").toFile();
+        WorkloadDriver.main(new String[]{"--size=300", "--seed=3", "--ops=200", "--mix=1,1,1,1",
+                "--out=" + f.getAbsolutePath()});
+
+        String printed = out.toString();
+        assertTrue(printed.contains("Generated 300 contacts (seed 3)"));
+        assertTrue(printed.contains("200 operations in"));
+        assertEquals(300, App.readContacts(f).size());
+
+        out.reset();
+        WorkloadDriver.main(new String[]{"--mix=1,2"});
+        assertTrue(out.toString().contains("Usage: WorkloadDriver"));
+    }
+}